@@ -0,0 +1,39 @@
+package ru.financeapp.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.financeapp.cli.CommandParser;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandParserBenchmark {
+    @Param({"add expense food 1000", "  stats   categories food transport rent  ", "help"})
+    public String line;
+
+    private final CommandParser.Tokenizer tokenizer = new CommandParser.Tokenizer();
+
+    @Benchmark
+    public CommandParser.Command parse() {
+        return new CommandParser.Command(line);
+    }
+
+    /** Путь сессии и пакета: один токенизатор на все строки. */
+    @Benchmark
+    public CommandParser.Action tokenize() {
+        return tokenizer.reset(line).action();
+    }
+}
@@ -0,0 +1,77 @@
+package ru.financeapp.bench;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.financeapp.core.FinanceService;
+import ru.financeapp.core.User;
+import ru.financeapp.core.UserService;
+import ru.financeapp.core.Wallet;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FinanceServiceBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int transactions;
+
+    private FinanceService financeService;
+    private PrintStream originalOut;
+    private User user;
+    private Wallet baseline;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        originalOut = Fixtures.silenceStdout();
+        Fixtures.MemoryStorage storage = new Fixtures.MemoryStorage();
+        baseline = Fixtures.wallet(transactions);
+        User user = new User("bench", "bench");
+        user.setWallet(baseline);
+        storage.saveUser(user);
+        UserService userService = new UserService(storage);
+        this.user = userService.login("bench", "bench");
+        financeService = new FinanceService(userService);
+    }
+
+    /** Каждая итерация начинает с кошелька исходного размера, иначе замеры дрейфуют с его ростом. */
+    @Setup(Level.Iteration)
+    public void resetWallet() {
+        financeService.awaitNotifications();
+        Wallet wallet = new Wallet();
+        wallet.setTransactions(new ArrayList<>(baseline.getTransactions()));
+        wallet.setBudgets(new HashMap<>(baseline.getBudgets()));
+        wallet.getTotals();
+        user.setWallet(wallet);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.setOut(originalOut);
+    }
+
+    /** Оповещения проверяются в потоке шины: замер ждёт их, как раньше ждал проверку на месте. */
+    @Benchmark
+    public double addExpenseWithNotifications() {
+        financeService.addExpense("food", 1.0);
+        financeService.awaitNotifications();
+        return financeService.getBudgetRemaining("food");
+    }
+}
@@ -0,0 +1,90 @@
+package ru.financeapp.bench;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import ru.financeapp.core.Transaction;
+import ru.financeapp.core.User;
+import ru.financeapp.core.Wallet;
+import ru.financeapp.infra.FileJsonStorage;
+import ru.financeapp.infra.Storage;
+
+final class Fixtures {
+    static final String[] CATEGORIES = {
+        "food", "transport", "rent", "health", "fun", "salary", "bonus", "gifts"
+    };
+
+    private Fixtures() {}
+
+    static Wallet wallet(int transactions) {
+        Wallet wallet = new Wallet();
+        for (int i = 0; i < transactions; i++) {
+            Transaction.Type type = i % 4 == 0 ? Transaction.Type.INCOME : Transaction.Type.EXPENSE;
+            wallet.addTransaction(
+                    new Transaction(type, CATEGORIES[i % CATEGORIES.length], 10 + i % 500));
+        }
+        for (String category : CATEGORIES) {
+            wallet.setBudget(category, 1_000_000.0);
+        }
+        return wallet;
+    }
+
+    static FileJsonStorage fileStorage(Path dir) {
+        Path usersFile = dir.resolve("users.json");
+        return new FileJsonStorage(dir.resolve("wallets") + "/") {
+            @Override
+            protected Path getUsersFilePath() {
+                return usersFile;
+            }
+        };
+    }
+
+    static PrintStream silenceStdout() {
+        PrintStream original = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        return original;
+    }
+
+    static void deleteRecursively(Path dir) throws IOException {
+        if (dir == null || !Files.exists(dir)) return;
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path p : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(p);
+            }
+        }
+    }
+
+    /** Хранилище без диска, чтобы в замерах сервиса не было файлового I/O. */
+    static class MemoryStorage implements Storage {
+        private final Map<String, User> users = new HashMap<>();
+
+        @Override
+        public void saveUser(User user) {
+            users.put(user.getUsername(), user);
+        }
+
+        @Override
+        public User findUser(String username) {
+            return users.get(username);
+        }
+
+        @Override
+        public List<User> getAllUsers() {
+            return List.copyOf(users.values());
+        }
+
+        @Override
+        public void loadWallet(User user) {}
+
+        @Override
+        public void saveWallet(User user) {}
+    }
+}
@@ -0,0 +1,64 @@
+package ru.financeapp.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.financeapp.core.User;
+import ru.financeapp.core.Wallet;
+import ru.financeapp.infra.FileJsonStorage;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StorageBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int transactions;
+
+    private Path dir;
+    private FileJsonStorage storage;
+    private User user;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("finance-bench");
+        storage = Fixtures.fileStorage(dir);
+        user = new User("bench", "bench");
+        user.setWallet(Fixtures.wallet(transactions));
+        storage.saveUser(user);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Fixtures.deleteRecursively(dir);
+    }
+
+    @Benchmark
+    public void saveWallet() {
+        storage.saveWallet(user);
+    }
+
+    @Benchmark
+    public Wallet loadWallet() {
+        User fresh = new User("bench", "bench");
+        storage.loadWallet(fresh);
+        return fresh.getWallet();
+    }
+}
@@ -0,0 +1,84 @@
+package ru.financeapp.bench;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.financeapp.core.User;
+import ru.financeapp.infra.FileJsonStorage;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UsersBenchmark {
+    @Param({"10000"})
+    public int users;
+
+    @Param({"10"})
+    public int transactionsPerUser;
+
+    private Path dir;
+    private FileJsonStorage storage;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("finance-bench");
+        storage = Fixtures.fileStorage(dir);
+        Map<String, String> directory = new HashMap<>();
+        for (int i = 0; i < users; i++) {
+            User user = new User("user" + i, "pass" + i);
+            user.setWallet(Fixtures.wallet(transactionsPerUser));
+            storage.saveWallet(user);
+            directory.put(user.getUsername(), user.getPassword());
+        }
+        try (Writer writer = Files.newBufferedWriter(dir.resolve("users.json"))) {
+            new Gson().toJson(directory, writer);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Fixtures.deleteRecursively(dir);
+    }
+
+    /**
+     * Пользователи вместе с кошельками — как до ленивой загрузки, чтобы замер оставался сравним со
+     * старыми результатами.
+     */
+    @Benchmark
+    public int getAllUsers() {
+        int transactions = 0;
+        for (User user : storage.getAllUsers()) {
+            transactions += user.getWallet().size();
+        }
+        return transactions;
+    }
+
+    /** Только справочник: кошельки остаются незагруженными. */
+    @Benchmark
+    public List<User> getAllUsersLazy() {
+        return storage.getAllUsers();
+    }
+}
@@ -1,9 +1,177 @@
 package ru.financeapp;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import ru.financeapp.cli.ConsoleApp;
+import ru.financeapp.cli.SessionServer;
+import ru.financeapp.core.BufferedOutputSink;
+import ru.financeapp.core.NotificationSink;
+import ru.financeapp.core.PasswordHasher;
+import ru.financeapp.core.TransferEngine;
+import ru.financeapp.infra.AppendLogStorage;
+import ru.financeapp.infra.BinaryWalletStorage;
+import ru.financeapp.infra.CachingStorage;
+import ru.financeapp.infra.ColumnarWalletStorage;
+import ru.financeapp.infra.FileJsonStorage;
+import ru.financeapp.infra.FileSync;
+import ru.financeapp.infra.H2Storage;
+import ru.financeapp.infra.JsonlNotificationSink;
+import ru.financeapp.infra.Storage;
+import ru.financeapp.infra.SynchronizedStorage;
 
 public class Main {
-    public static void main(String[] args) {
-        new ConsoleApp().run();
+    private static final String STORAGE_OPTION = "--storage=";
+    private static final String SYNC_OPTION = "--sync=";
+    private static final String GROUP_SYNC_PREFIX = "group:";
+    private static final String BATCH_OPTION = "--batch=";
+    private static final String SERVER_OPTION = "--server=";
+    private static final String CACHE_OPTION = "--cache=";
+    private static final String LAYOUT_OPTION = "--layout=";
+    private static final String HASH_ITERATIONS_OPTION = "--hash-iterations=";
+    private static final String ALERTS_OPTION = "--alerts=";
+    private static final long CACHE_FLUSH_MILLIS = 1000;
+    private static final Path TRANSFER_JOURNAL = Paths.get("wallets", "transfers");
+    private static final Path DATABASE_FILE = Paths.get("wallets", "finance");
+
+    public static void main(String[] args) throws IOException {
+        String iterations = option(args, HASH_ITERATIONS_OPTION, null);
+        if (iterations != null) {
+            PasswordHasher.setShared(new PasswordHasher(Integer.parseInt(iterations)));
+        }
+        String alerts = option(args, ALERTS_OPTION, null);
+        if (alerts == null) {
+            run(args, List.of());
+            return;
+        }
+        try (JsonlNotificationSink log = new JsonlNotificationSink(Paths.get(alerts))) {
+            run(args, List.of(log));
+        }
+    }
+
+    private static void run(String[] args, List<NotificationSink> sinks) throws IOException {
+        Storage backend = createBackend(args);
+        Storage storage = withCache(args, backend);
+        Runnable close = closer(storage, backend);
+        // сервер останавливают сигналом: finally не выполнится, а хук — да
+        Runtime.getRuntime().addShutdownHook(new Thread(close, "storage-close"));
+        try {
+            run(args, sinks, storage);
+        } finally {
+            close.run();
+        }
+    }
+
+    private static void run(String[] args, List<NotificationSink> sinks, Storage storage)
+            throws IOException {
+        String port = option(args, SERVER_OPTION, null);
+        if (port != null) {
+            if (!(storage instanceof CachingStorage)) {
+                storage = new SynchronizedStorage(storage);
+            }
+            try (SessionServer server =
+                    new SessionServer(
+                            Integer.parseInt(port),
+                            storage,
+                            new TransferEngine(storage, TRANSFER_JOURNAL),
+                            sinks)) {
+                System.out.println("Listening on 127.0.0.1:" + server.getPort());
+                server.serve();
+            }
+            return;
+        }
+        try (ConsoleApp app =
+                new ConsoleApp(
+                        storage,
+                        new BufferedOutputSink(System.out),
+                        new TransferEngine(storage, TRANSFER_JOURNAL),
+                        sinks)) {
+            String batchFile = option(args, BATCH_OPTION, null);
+            if (batchFile != null) {
+                app.runBatch(batchFile);
+            } else {
+                app.run();
+            }
+        }
+    }
+
+    private static Storage createBackend(String[] args) {
+        String kind = option(args, STORAGE_OPTION, "json");
+        if ("h2".equals(kind)) {
+            return new H2Storage(DATABASE_FILE);
+        }
+        FileJsonStorage files =
+                switch (kind) {
+                    case "json" -> new FileJsonStorage();
+                    case "log" -> new AppendLogStorage();
+                    case "binary" -> new BinaryWalletStorage();
+                    case "columnar" -> new ColumnarWalletStorage();
+                    default -> throw new IllegalArgumentException("Unknown storage: " + kind);
+                };
+        files.setFileSync(createFileSync(option(args, SYNC_OPTION, "always")));
+        files.setSharded(isShardedLayout(option(args, LAYOUT_OPTION, "flat")));
+        return files;
+    }
+
+    private static Storage withCache(String[] args, Storage storage) {
+        String cache = option(args, CACHE_OPTION, null);
+        if (cache != null) {
+            return new CachingStorage(storage, Integer.parseInt(cache), CACHE_FLUSH_MILLIS);
+        }
+        return storage;
+    }
+
+    /**
+     * Закрывает кэш (дописывает отложенные кошельки), затем нижнее хранилище (групповой fsync, база
+     * H2). Второй вызов — из хука после finally — ничего не делает.
+     */
+    private static Runnable closer(Storage storage, Storage backend) {
+        AtomicBoolean closed = new AtomicBoolean();
+        return () -> {
+            if (!closed.compareAndSet(false, true)) return;
+            closeQuietly(storage);
+            if (backend != storage) closeQuietly(backend);
+        };
+    }
+
+    private static void closeQuietly(Storage storage) {
+        if (!(storage instanceof Closeable closeable)) return;
+        try {
+            closeable.close();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Warning: failed to close storage: " + e.getMessage());
+        }
+    }
+
+    static boolean isShardedLayout(String layout) {
+        return switch (layout) {
+            case "flat" -> false;
+            case "sharded" -> true;
+            default -> throw new IllegalArgumentException("Unknown layout: " + layout);
+        };
+    }
+
+    static FileSync createFileSync(String mode) {
+        if ("always".equals(mode)) {
+            return FileSync.immediate();
+        }
+        if (mode.startsWith(GROUP_SYNC_PREFIX)) {
+            return FileSync.grouped(Long.parseLong(mode.substring(GROUP_SYNC_PREFIX.length())));
+        }
+        throw new IllegalArgumentException("Unknown sync mode: " + mode);
+    }
+
+    private static String option(String[] args, String prefix, String defaultValue) {
+        String value = defaultValue;
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) {
+                value = arg.substring(prefix.length());
+            }
+        }
+        return value;
     }
 }
@@ -1,24 +1,230 @@
 package ru.financeapp.cli;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Locale;
 
+import ru.financeapp.core.Money;
 import ru.financeapp.exceptions.InvalidInputException;
 
 public class CommandParser {
+    public enum Action {
+        REGISTER,
+        LOGIN,
+        ADD,
+        SET,
+        EDIT,
+        STATS,
+        TRANSFER,
+        EXPORT,
+        IMPORT,
+        LIST,
+        LOGOUT,
+        HELP,
+        EXIT,
+        BATCH,
+        REPORT,
+        UNKNOWN;
+
+        private static final Action[] KNOWN = Arrays.copyOf(values(), values().length - 1);
+        private final String word = name().toLowerCase(Locale.ROOT);
+
+        /** Сравнение без учёта регистра прямо по символам, без создания строки. */
+        static Action of(CharSequence token) {
+            for (Action action : KNOWN) {
+                if (matches(action.word, token)) return action;
+            }
+            return UNKNOWN;
+        }
+
+        public String word() {
+            return word;
+        }
+    }
+
     public static class Command {
         public String action;
         public List<String> args;
+        final Tokenizer tokens;
 
         public Command(String input) {
-            if (input == null || input.trim().isEmpty()) {
+            tokens = new Tokenizer().reset(input);
+            action = tokens.actionName();
+            args = tokens.args(0);
+        }
+    }
+
+    /**
+     * Разбивает строку на слова за один проход. Слова отдаются срезами {@link CharSequence} поверх
+     * исходной строки; срезы и массивы границ переиспользуются между строками, поэтому на типичную
+     * команду ничего не выделяется.
+     */
+    public static final class Tokenizer {
+        private CharSequence line;
+        private int[] starts = new int[8];
+        private int[] ends = new int[8];
+        private Slice[] slices = new Slice[0];
+        private int count;
+        private Action action;
+
+        public Tokenizer reset(CharSequence input) {
+            line = input;
+            count = 0;
+            int n = input == null ? 0 : input.length();
+            int i = 0;
+            while (i < n) {
+                while (i < n && Character.isWhitespace(input.charAt(i))) i++;
+                if (i == n) break;
+                int start = i;
+                while (i < n && !Character.isWhitespace(input.charAt(i))) i++;
+                if (count == starts.length) {
+                    starts = Arrays.copyOf(starts, count * 2);
+                    ends = Arrays.copyOf(ends, count * 2);
+                }
+                starts[count] = start;
+                ends[count] = i;
+                count++;
+            }
+            if (count == 0) {
                 throw new InvalidInputException("Empty command");
             }
-            List<String> parts =
-                    Arrays.stream(input.trim().split("\\s+")).collect(Collectors.toList());
-            action = parts.get(0).toLowerCase();
-            args = parts.subList(1, parts.size());
+            action = Action.of(token(0));
+            return this;
+        }
+
+        public Action action() {
+            return action;
+        }
+
+        /** Имя команды в нижнем регистре, как его ввёл пользователь. */
+        public String actionName() {
+            return action != Action.UNKNOWN
+                    ? action.word()
+                    : token(0).toString().toLowerCase(Locale.ROOT);
+        }
+
+        public int argCount() {
+            return count - 1;
+        }
+
+        public CharSequence arg(int index) {
+            return token(index + 1);
+        }
+
+        public String argString(int index) {
+            return arg(index).toString();
+        }
+
+        public boolean argIs(int index, String word) {
+            return index < argCount() && matches(word, arg(index));
+        }
+
+        /** Аргументы начиная с {@code from} как список строк (для редких команд). */
+        public List<String> args(int from) {
+            List<String> result = new ArrayList<>(Math.max(0, argCount() - from));
+            for (int i = from; i < argCount(); i++) {
+                result.add(argString(i));
+            }
+            return result;
+        }
+
+        /**
+         * Десятичная сумма прямо из символов строки: {@code [-]digits[.digits]}, округление до
+         * копеек половиной вверх.
+         */
+        public double argAmount(int index) {
+            int from = starts[index + 1];
+            int to = ends[index + 1];
+            boolean negative = line.charAt(from) == '-';
+            int i = negative ? from + 1 : from;
+            long minor = 0;
+            int fraction = -1;
+            boolean roundUp = false;
+            boolean digits = false;
+            for (; i < to; i++) {
+                char c = line.charAt(i);
+                if (c == '.' && fraction < 0) {
+                    fraction = 0;
+                    continue;
+                }
+                if (c < '0' || c > '9') throw invalidAmount(index);
+                digits = true;
+                if (fraction < 0 || fraction < Money.SCALE) {
+                    if (minor > (Long.MAX_VALUE - 9) / 10) throw invalidAmount(index);
+                    minor = minor * 10 + (c - '0');
+                    if (fraction >= 0) fraction++;
+                } else if (fraction == Money.SCALE) {
+                    roundUp = c >= '5';
+                    fraction++;
+                }
+            }
+            if (!digits) throw invalidAmount(index);
+            for (int f = Math.max(fraction, 0); f < Money.SCALE; f++) {
+                if (minor > Long.MAX_VALUE / 10) throw invalidAmount(index);
+                minor *= 10;
+            }
+            if (roundUp) minor++;
+            return Money.toDouble(negative ? -minor : minor);
+        }
+
+        private InvalidInputException invalidAmount(int index) {
+            return new InvalidInputException("Invalid amount '" + arg(index) + "'");
+        }
+
+        private CharSequence token(int i) {
+            if (i >= slices.length) {
+                int old = slices.length;
+                slices = Arrays.copyOf(slices, Math.max(count, old * 2));
+                for (int k = old; k < slices.length; k++) {
+                    slices[k] = new Slice();
+                }
+            }
+            Slice slice = slices[i];
+            slice.set(line, starts[i], ends[i]);
+            return slice;
+        }
+    }
+
+    /** Окно {@code [start, end)} над чужой строкой; {@link #toString()} копирует символы. */
+    private static final class Slice implements CharSequence {
+        private CharSequence source;
+        private int start;
+        private int end;
+
+        void set(CharSequence source, int start, int end) {
+            this.source = source;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return source.charAt(start + index);
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            return source.subSequence(start + from, start + to);
+        }
+
+        @Override
+        public String toString() {
+            return source.subSequence(start, end).toString();
+        }
+    }
+
+    private static boolean matches(String word, CharSequence token) {
+        int n = word.length();
+        if (token.length() != n) return false;
+        for (int i = 0; i < n; i++) {
+            if (Character.toLowerCase(token.charAt(i)) != word.charAt(i)) return false;
         }
+        return true;
     }
 }
@@ -1,264 +1,565 @@
 package ru.financeapp.cli;
 
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.*;
 
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
+import ru.financeapp.core.BufferedOutputSink;
 import ru.financeapp.core.FinanceService;
+import ru.financeapp.core.NotificationBus;
+import ru.financeapp.core.NotificationRule;
+import ru.financeapp.core.NotificationSink;
+import ru.financeapp.core.OutputSink;
 import ru.financeapp.core.Transaction;
+import ru.financeapp.core.TransactionTotals;
+import ru.financeapp.core.TransferEngine;
+import ru.financeapp.core.User;
 import ru.financeapp.core.UserService;
 import ru.financeapp.core.Wallet;
 import ru.financeapp.exceptions.InvalidInputException;
 import ru.financeapp.infra.FileJsonStorage;
 import ru.financeapp.infra.Storage;
+import ru.financeapp.infra.WalletArchive;
+import ru.financeapp.infra.WalletReport;
 
-public class ConsoleApp {
+public class ConsoleApp implements Closeable {
+    private static final int REPORT_TOP = 5;
     protected final UserService userService;
     protected final FinanceService financeService;
     protected final Storage storage;
+    protected final OutputSink out;
+    private final TransferEngine transfers;
+    private final NotificationBus notifications;
     boolean running = true;
+    private boolean admin = true;
+    private final CommandParser.Tokenizer tokens = new CommandParser.Tokenizer();
+    private final TableFormat statsRow = new TableFormat(8, 6, 7, 6, 9);
+    private final TableFormat reportRow = new TableFormat(8, 6, 7);
 
     public ConsoleApp() {
-        this.storage = new FileJsonStorage();
+        this(new FileJsonStorage());
+    }
+
+    public ConsoleApp(Storage storage) {
+        this(storage, new BufferedOutputSink(System.out));
+    }
+
+    /** Отдельная сессия со своим {@link UserService} поверх общего хранилища. */
+    public ConsoleApp(Storage storage, OutputSink out) {
+        this(storage, out, new TransferEngine(storage));
+    }
+
+    /** Сессии, делящие хранилище, должны делить и {@link TransferEngine} с его блокировками. */
+    public ConsoleApp(Storage storage, OutputSink out, TransferEngine transfers) {
+        this(storage, out, transfers, List.of());
+    }
+
+    /** Оповещения идут в вывод сессии и дополнительно в {@code sinks} (например, общий журнал). */
+    public ConsoleApp(
+            Storage storage,
+            OutputSink out,
+            TransferEngine transfers,
+            List<NotificationSink> sinks) {
+        this.storage = storage;
+        this.out = out;
+        this.transfers = transfers;
         this.userService = new UserService(storage);
-        this.financeService = new FinanceService(userService);
+        List<NotificationSink> all = new ArrayList<>();
+        all.add(NotificationSink.console(out));
+        all.addAll(sinks);
+        this.notifications = new NotificationBus(NotificationRule.defaults(), all);
+        this.financeService = new FinanceService(userService, out, transfers, notifications);
     }
 
     protected ConsoleApp(UserService userService, FinanceService financeService, Storage storage) {
         this.userService = userService;
         this.financeService = financeService;
         this.storage = storage;
+        this.out = new BufferedOutputSink(System.out);
+        this.transfers = new TransferEngine(storage);
+        this.notifications = null;
+    }
+
+    /**
+     * Доставляет оставшиеся оповещения и останавливает поток шины сессии, не дожидаясь его выхода
+     * по простою.
+     */
+    @Override
+    public void close() {
+        if (notifications != null) {
+            notifications.close();
+        }
+    }
+
+    /** Разрешены ли команды по всем пользователям ({@code report}); у сессий сервера — нет. */
+    void setAdmin(boolean admin) {
+        this.admin = admin;
     }
 
     public void run() {
-        System.out.println("=== Personal Finance App: Управление финансами ===");
+        out.println("=== Personal Finance App: Управление финансами ===");
         printHelp();
-        Scanner scanner = new Scanner(System.in);
+        session(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)));
+        saveAll();
+        financeService.awaitNotifications();
+        out.flush();
+    }
+
+    /** Цикл команд до {@code exit} или конца ввода. */
+    void session(BufferedReader in) {
         while (running) {
-            System.out.print("> ");
-            String input = scanner.nextLine().trim();
-            if (input.isEmpty()) {
+            financeService.awaitNotifications();
+            out.print("> ");
+            out.flush();
+            String line;
+            try {
+                line = in.readLine();
+            } catch (IOException e) {
+                break;
+            }
+            if (line == null) {
+                break;
+            }
+            if (line.isBlank()) {
                 continue;
             }
-            try {
-                handleCommand(new CommandParser.Command(input));
-            } catch (InvalidInputException e) {
-                System.out.println("Error: " + e.getMessage() + ". Type 'help' for usage.");
+            handleLine(line);
+        }
+        financeService.awaitNotifications();
+        out.flush();
+    }
+
+    /**
+     * Сохраняет кошелёк пользователя этой сессии, если в нём есть несохранённые изменения (при
+     * выходе, смене пользователя и отключении клиента сервера).
+     */
+    void saveCurrentUser() {
+        if (userService.isLoggedIn()) {
+            User user = userService.getCurrentUser();
+            if (user.isWalletLoaded() && user.getWallet().isDirty()) {
+                transfers.save(user);
             }
         }
+        storage.flush();
+    }
+
+    /** Неинтерактивный запуск: выполнить файл команд и сохранить данные. */
+    public void runBatch(String file) {
+        try {
+            batch(List.of(file));
+        } catch (InvalidInputException e) {
+            out.println("Error: " + e.getMessage());
+        }
         saveAll();
+        financeService.awaitNotifications();
+        out.flush();
     }
 
     void handleCommand(CommandParser.Command cmd) {
         try {
-            switch (cmd.action) {
-                case "register" -> register(cmd.args);
-                case "login" -> login(cmd.args);
-                case "add" -> add(cmd.args);
-                case "set" -> {
-                    if (cmd.args.isEmpty() || !cmd.args.get(0).equals("budget")) {
-                        throw new InvalidInputException("Usage: set budget <category> <amount>");
-                    }
-                    setBudget(cmd.args.subList(1, cmd.args.size()));
+            dispatch(cmd.tokens);
+        } catch (Exception e) {
+            out.println("Error: " + e.getMessage() + ". Type 'help' for usage.");
+        }
+        financeService.awaitNotifications();
+        out.flush();
+    }
+
+    /** Разбор строки переиспользуемым токенизатором сессии, без промежуточного {@code Command}. */
+    void handleLine(CharSequence line) {
+        try {
+            dispatch(tokens.reset(line));
+        } catch (Exception e) {
+            out.println("Error: " + e.getMessage() + ". Type 'help' for usage.");
+        }
+    }
+
+    private void dispatch(CommandParser.Tokenizer t) {
+        switch (t.action()) {
+            case REGISTER -> register(t);
+            case LOGIN -> login(t);
+            case ADD -> add(t);
+            case SET -> {
+                if (!t.argIs(0, "budget")) {
+                    throw new InvalidInputException("Usage: set budget <category> <amount>");
                 }
-                case "edit" -> {
-                    if (cmd.args.isEmpty() || !cmd.args.get(0).equals("budget")) {
-                        throw new InvalidInputException("Usage: edit budget <category> <amount>");
+                setBudget(t);
+            }
+            case EDIT -> {
+                if (!t.argIs(0, "budget")) {
+                    throw new InvalidInputException("Usage: edit budget <category> <amount>");
+                }
+                setBudget(t);
+                out.println("Budget updated!");
+            }
+            case STATS -> stats(t.args(0));
+            case TRANSFER -> transfer(t);
+            case EXPORT -> export(t.args(0));
+            case IMPORT -> imprt(t.args(0));
+            case LIST -> listCategories();
+            case LOGOUT -> logout();
+            case HELP -> printHelp();
+            case EXIT -> exit();
+            case BATCH -> batch(t.args(0));
+            case REPORT -> report(t.args(0));
+            case UNKNOWN -> throw new InvalidInputException("Unknown command");
+        }
+    }
+
+    /**
+     * Выполняет команды из файла построчно. Оповещения и сохранение кошельков откладываются до
+     * конца пакета; ошибки выводятся с номером строки и не прерывают выполнение.
+     */
+    void batch(List<String> args) {
+        requireLocal("batch");
+        if (args.size() != 1) throw new InvalidInputException("Usage: batch <file>");
+        if (financeService.isBatchActive())
+            throw new InvalidInputException("Nested batches are not supported");
+        int ok = 0;
+        int failed = 0;
+        long start = System.nanoTime();
+        financeService.beginBatch();
+        try (BufferedReader reader =
+                Files.newBufferedReader(Path.of(args.get(0)), StandardCharsets.UTF_8)) {
+            String line;
+            int lineNo = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                String input = line.strip();
+                if (input.isEmpty() || input.charAt(0) == '#') continue;
+                try {
+                    CommandParser.Tokenizer t = tokens.reset(input);
+                    if (t.action() == CommandParser.Action.BATCH
+                            || t.action() == CommandParser.Action.EXIT) {
+                        throw new InvalidInputException(
+                                "'" + t.actionName() + "' is not allowed in a batch");
                     }
-                    setBudget(cmd.args.subList(1, cmd.args.size()));
-                    System.out.println("Budget updated!");
+                    dispatch(t);
+                    ok++;
+                } catch (Exception e) {
+                    failed++;
+                    out.println("Line " + lineNo + ": " + e.getMessage());
                 }
-                case "stats" -> stats(cmd.args);
-                case "transfer" -> transfer(cmd.args);
-                case "export" -> export(cmd.args);
-                case "import" -> imprt(cmd.args);
-                case "list" -> listCategories();
-                case "logout" -> logout();
-                case "help" -> printHelp();
-                case "exit" -> exit();
-                default -> System.out.println("Unknown command. Type 'help' for usage.");
             }
-        } catch (Exception e) {
-            System.out.println("Error: " + e.getMessage() + ". Type 'help' for usage.");
+        } catch (IOException e) {
+            throw new InvalidInputException("Batch failed: " + e.getMessage());
+        } finally {
+            financeService.endBatch();
+            financeService.awaitNotifications();
         }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        out.println(
+                String.format(
+                        Locale.US,
+                        "Batch done: %d ok, %d failed in %.3f s (%.0f commands/s)",
+                        ok,
+                        failed,
+                        seconds,
+                        seconds > 0 ? (ok + failed) / seconds : 0.0));
     }
 
-    private void register(List<String> args) {
-        if (args.size() != 2)
+    /**
+     * Команды, читающие и пишущие произвольные файлы или все кошельки, — только в локальной
+     * консоли: у сессии сервера путь из команды открывался бы от имени процесса сервера.
+     */
+    private void requireLocal(String command) {
+        if (!admin) throw new InvalidInputException("'" + command + "' is only available locally");
+    }
+
+    private void register(CommandParser.Tokenizer t) {
+        if (t.argCount() != 2)
             throw new InvalidInputException("Usage: register <username> <password>");
-        userService.register(args.get(0), args.get(1));
-        System.out.println("Registered successfully!");
+        userService.register(t.argString(0), t.argString(1));
+        out.println("Registered successfully!");
     }
 
-    private void login(List<String> args) {
-        if (args.size() != 2) throw new InvalidInputException("Usage: login <username> <password>");
-        userService.login(args.get(0), args.get(1));
-        System.out.println("Logged in as " + args.get(0));
+    private void login(CommandParser.Tokenizer t) {
+        if (t.argCount() != 2)
+            throw new InvalidInputException("Usage: login <username> <password>");
+        saveCurrentUser();
+        String username = t.argString(0);
+        userService.login(username, t.argString(1));
+        out.println("Logged in as " + username);
     }
 
-    private void add(List<String> args) {
+    private void add(CommandParser.Tokenizer t) {
         if (!userService.isLoggedIn())
             throw new InvalidInputException("Login first. Usage: login <username> <password>");
-        if (args.size() != 3)
+        if (t.argCount() != 3)
             throw new InvalidInputException("Usage: add <income|expense> <category> <amount>");
-        String type = args.get(0);
-        String cat = args.get(1);
-        double amt = Double.parseDouble(args.get(2));
-        if ("income".equals(type)) {
-            financeService.addIncome(cat, amt);
-        } else if ("expense".equals(type)) {
-            financeService.addExpense(cat, amt);
-        } else {
+        boolean income = t.argIs(0, "income");
+        if (!income && !t.argIs(0, "expense")) {
             throw new InvalidInputException(
                     "Type must be 'income' or 'expense'. Usage: add <income|expense> <category> <amount>");
         }
-        System.out.println("Added " + type + " successfully!");
+        String cat = t.argString(1);
+        double amt = t.argAmount(2);
+        if (income) {
+            financeService.addIncome(cat, amt);
+            out.println("Added income successfully!");
+        } else {
+            financeService.addExpense(cat, amt);
+            out.println("Added expense successfully!");
+        }
     }
 
-    private void setBudget(List<String> args) {
+    /** {@code set|edit budget <category> <amount>}: аргумент 0 — слово {@code budget}. */
+    private void setBudget(CommandParser.Tokenizer t) {
         if (!userService.isLoggedIn())
             throw new InvalidInputException("Login first. Usage: login <username> <password>");
-        if (args.size() != 2)
+        if (t.argCount() != 3)
             throw new InvalidInputException("Usage: set budget <category> <amount>");
-        double amt = Double.parseDouble(args.get(1));
-        financeService.setBudget(args.get(0), amt);
-        System.out.println("Budget set!");
+        double amt = t.argAmount(2);
+        financeService.setBudget(t.argString(1), amt);
+        out.println("Budget set!");
     }
 
     private void stats(List<String> args) {
         if (!userService.isLoggedIn())
             throw new InvalidInputException("Login first. Usage: login <username> <password>");
+        LocalDate from = null;
+        LocalDate to = null;
+        if (!args.isEmpty() && "from".equals(args.get(0))) {
+            if (args.size() < 4 || !"to".equals(args.get(2))) {
+                throw new InvalidInputException(
+                        "Usage: stats from <yyyy-mm-dd> to <yyyy-mm-dd> [categories <cats>]");
+            }
+            from = parseDate(args.get(1));
+            to = parseDate(args.get(3));
+            args = args.subList(4, args.size());
+        }
         List<String> cats;
         if (!args.isEmpty() && "categories".equals(args.get(0))) {
             cats = args.subList(1, args.size());
         } else {
             cats = args;
         }
-        double income = financeService.getTotalIncome();
-        double expense = financeService.getTotalExpenses();
-        System.out.printf(Locale.US, "Общий доход: %.1f%n", income);
-        System.out.printf(Locale.US, "Общие расходы: %.1f%n", expense);
-        printTable(
-                financeService.getIncomeByCategories(cats),
-                financeService.getExpensesByCategories(cats));
-        if (financeService.getTotalExpenses() > financeService.getTotalIncome()) {
-            System.out.println("Alert: Expenses exceed income!");
+        double income;
+        double expense;
+        Map<String, Double> incomes;
+        Map<String, Double> expenses;
+        if (from != null) {
+            income = financeService.getTotalIncome(from, to);
+            expense = financeService.getTotalExpenses(from, to);
+            incomes = financeService.getIncomeByCategories(cats, from, to);
+            expenses = financeService.getExpensesByCategories(cats, from, to);
+            out.println("Период: " + from + " — " + to);
+        } else {
+            income = financeService.getTotalIncome();
+            expense = financeService.getTotalExpenses();
+            incomes = financeService.getIncomeByCategories(cats);
+            expenses = financeService.getExpensesByCategories(cats);
+        }
+        out.println("Общий доход: " + TableFormat.formatAmount(income));
+        out.println("Общие расходы: " + TableFormat.formatAmount(expense));
+        printTable(incomes, expenses);
+        if (expense > income) {
+            out.println("Alert: Expenses exceed income!");
+        }
+    }
+
+    private LocalDate parseDate(String value) {
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new InvalidInputException("Invalid date '" + value + "', expected yyyy-mm-dd");
+        }
+    }
+
+    /**
+     * {@code report [<top>]}: доходы и расходы по категориям у всех пользователей и крупнейшие по
+     * расходам. Перед отчётом сохраняются несохранённые кошельки.
+     */
+    private void report(List<String> args) {
+        requireLocal("report");
+        if (args.size() > 1) throw new InvalidInputException("Usage: report [<top>]");
+        int top = REPORT_TOP;
+        if (!args.isEmpty()) {
+            try {
+                top = Integer.parseInt(args.get(0));
+            } catch (NumberFormatException e) {
+                top = -1;
+            }
+            if (top < 0) throw new InvalidInputException("Usage: report [<top>]");
+        }
+        saveAll();
+        long start = System.nanoTime();
+        WalletReport report = WalletReport.build(storage, top);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        out.println(
+                String.format(
+                        Locale.US,
+                        "Report: %d users, %d transactions in %.3f s",
+                        report.getUsers(),
+                        report.getTransactionCount(),
+                        seconds));
+        if (report.getFailed() > 0) {
+            out.println("Skipped " + report.getFailed() + " unreadable wallets");
+        }
+        TransactionTotals totals = report.getTotals();
+        out.println(
+                "Общий доход: "
+                        + TableFormat.formatAmount(totals.getTotal(Transaction.Type.INCOME)));
+        out.println(
+                "Общие расходы: "
+                        + TableFormat.formatAmount(totals.getTotal(Transaction.Type.EXPENSE)));
+        Map<String, Double> incomes = totals.getByCategory(Transaction.Type.INCOME);
+        Map<String, Double> expenses = totals.getByCategory(Transaction.Type.EXPENSE);
+        Set<String> categories = new TreeSet<>(incomes.keySet());
+        categories.addAll(expenses.keySet());
+        out.println("| Category | Income | Expense |");
+        out.println("|----------|--------|---------|");
+        for (String cat : categories) {
+            out.println(
+                    reportRow
+                            .begin()
+                            .cell(cat)
+                            .cell(incomes.getOrDefault(cat, 0.0))
+                            .cell(expenses.getOrDefault(cat, 0.0))
+                            .end());
+        }
+        List<WalletReport.Spender> spenders = report.getTopSpenders();
+        if (!spenders.isEmpty()) {
+            out.println("Top spenders:");
+            for (int i = 0; i < spenders.size(); i++) {
+                WalletReport.Spender s = spenders.get(i);
+                out.println(
+                        (i + 1)
+                                + ". "
+                                + s.getUsername()
+                                + " "
+                                + TableFormat.formatAmount(s.getExpenses()));
+            }
         }
     }
 
-    private void transfer(List<String> args) {
+    private void transfer(CommandParser.Tokenizer t) {
         if (!userService.isLoggedIn())
             throw new InvalidInputException("Login first. Usage: login <username> <password>");
-        if (args.size() != 2) throw new InvalidInputException("Usage: transfer <to_user> <amount>");
-        double amt = Double.parseDouble(args.get(1));
-        financeService.transfer(args.get(0), amt);
-        System.out.println("Transfer sent!");
+        if (t.argCount() != 2)
+            throw new InvalidInputException("Usage: transfer <to_user> <amount>");
+        double amt = t.argAmount(1);
+        financeService.transfer(t.argString(0), amt);
+        out.println("Transfer sent!");
     }
 
     private void export(List<String> args) {
+        requireLocal("export");
         if (!userService.isLoggedIn())
             throw new InvalidInputException("Login first. Usage: login <username> <password>");
         if (args.isEmpty()) throw new InvalidInputException("Usage: export <file.json>");
         String file = args.get(0);
-        Map<String, Object> data =
-                Map.of(
-                        "transactions", userService.getCurrentUser().getWallet().getTransactions(),
-                        "budgets", userService.getCurrentUser().getWallet().getBudgets());
-        try (FileWriter w = new FileWriter(file)) {
-            new Gson().toJson(data, w);
-            System.out.println("Exported to " + file);
+        try {
+            int rows =
+                    WalletArchive.export(userService.getCurrentUser().getWallet(), Path.of(file));
+            out.println("Exported to " + file + " (" + rows + " transactions)");
         } catch (IOException e) {
             throw new RuntimeException("Export failed", e);
         }
     }
 
+    /** {@code import <file.json> [replace|append|merge]}, по умолчанию {@code replace}. */
     private void imprt(List<String> args) {
+        requireLocal("import");
         if (!userService.isLoggedIn())
             throw new InvalidInputException("Login first. Usage: login <username> <password>");
-        if (args.isEmpty()) throw new InvalidInputException("Usage: import <file.json>");
-        String file = args.get(0);
-        Gson gson = new Gson();
-        try (FileReader r = new FileReader(file)) {
-            @SuppressWarnings("unchecked")
-            Map<String, Object> data = gson.fromJson(r, Map.class);
-            @SuppressWarnings("unchecked")
-            List<Transaction> trans =
-                    gson.fromJson(
-                            gson.toJsonTree(data.get("transactions")),
-                            new TypeToken<List<Transaction>>() {}.getType());
-            @SuppressWarnings("unchecked")
-            Map<String, Double> buds =
-                    gson.fromJson(
-                            gson.toJsonTree(data.get("budgets")),
-                            new TypeToken<Map<String, Double>>() {}.getType());
-            Wallet w = userService.getCurrentUser().getWallet();
-            w.setTransactions(trans != null ? trans : List.of());
-            w.setBudgets(buds != null ? buds : new HashMap<>());
-            System.out.println("Imported successfully!");
+        if (args.isEmpty() || args.size() > 2)
+            throw new InvalidInputException("Usage: import <file.json> [replace|append|merge]");
+        WalletArchive.Mode mode = WalletArchive.Mode.REPLACE;
+        if (args.size() == 2) {
+            try {
+                mode = WalletArchive.Mode.valueOf(args.get(1).toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new InvalidInputException("Usage: import <file.json> [replace|append|merge]");
+            }
+        }
+        long start = System.nanoTime();
+        WalletArchive.ImportResult result;
+        try {
+            result =
+                    WalletArchive.importInto(
+                            userService.getCurrentUser().getWallet(), Path.of(args.get(0)), mode);
         } catch (Exception e) {
             throw new InvalidInputException("Import failed: " + e.getMessage());
         }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        out.println(
+                String.format(
+                        Locale.US,
+                        "Imported successfully! %d transactions, %d duplicates skipped in %.3f s (%.0f rows/s)",
+                        result.getImported(),
+                        result.getSkipped(),
+                        seconds,
+                        seconds > 0 ? result.getRows() / seconds : 0.0));
     }
 
     private void listCategories() {
         if (!userService.isLoggedIn())
             throw new InvalidInputException("Login first. Usage: login <username> <password>");
-        System.out.println(
+        out.println(
                 "Categories: " + userService.getCurrentUser().getWallet().getBudgets().keySet());
     }
 
     private void logout() {
+        saveCurrentUser();
         userService.logout();
-        System.out.println("Logged out.");
+        out.println("Logged out.");
     }
 
     void exit() {
         running = false;
-        System.out.println("Goodbye!");
+        out.println("Goodbye!");
     }
 
     void printHelp() {
-        System.out.println(
+        out.println(
                 "Commands: register/login <user> <pass>, "
                         + "add <income|expense> <cat> <amt>, "
                         + "set/edit budget <cat> <amt>, "
-                        + "stats [categories <cats>], transfer <to> <amt>, "
-                        + "export/import <file>, list categories, "
+                        + "stats [from <date> to <date>] [categories <cats>], "
+                        + "transfer <to> <amt>, "
+                        + "export <file>, import <file> [replace|append|merge], "
+                        + "batch <file>, report [<top>], list categories, "
                         + "logout, help, exit.");
-        System.out.println(
+        out.println(
                 "Examples: 'add expense food 1000', "
                         + "'stats categories food transport', 'set budget еда 4000'.");
     }
 
     private void printTable(Map<String, Double> incomes, Map<String, Double> expenses) {
-        System.out.println("| Category | Income | Expense | Budget | Remaining |");
-        System.out.println("|----------|--------|---------|--------|-----------|");
+        out.println("| Category | Income | Expense | Budget | Remaining |");
+        out.println("|----------|--------|---------|--------|-----------|");
         Set<String> allCats = new HashSet<>();
         allCats.addAll(incomes.keySet());
         allCats.addAll(expenses.keySet());
-        allCats.forEach(
-                cat -> {
-                    double inc = incomes.getOrDefault(cat, 0.0);
-                    double exp = expenses.getOrDefault(cat, 0.0);
-                    double bud = userService.getCurrentUser().getWallet().getBudget(cat);
-                    double rem = financeService.getBudgetRemaining(cat);
-                    String budStr = (bud > 0) ? String.format(Locale.US, "%.1f", bud) : "N/A";
-                    String remStr = (bud > 0) ? String.format(Locale.US, "%.1f", rem) : "N/A";
-                    System.out.printf(
-                            Locale.US,
-                            "| %-8s | %-6.1f | %-7.1f | %-6s | %-9s |%n",
-                            cat,
-                            inc,
-                            exp,
-                            budStr,
-                            remStr);
-                });
+        Wallet wallet = userService.getCurrentUser().getWallet();
+        for (String cat : allCats) {
+            double bud = wallet.getBudget(cat);
+            statsRow.begin()
+                    .cell(cat)
+                    .cell(incomes.getOrDefault(cat, 0.0))
+                    .cell(expenses.getOrDefault(cat, 0.0));
+            if (bud > 0) {
+                statsRow.cell(bud).cell(financeService.getBudgetRemaining(cat));
+            } else {
+                statsRow.cell("N/A").cell("N/A");
+            }
+            out.println(statsRow.end());
+        }
     }
 
+    /**
+     * Переводы и пакеты сохраняют чужие кошельки сами, так что при выходе в памяти может быть
+     * изменён только кошелёк текущей сессии.
+     */
     void saveAll() {
-        storage.getAllUsers().forEach(storage::saveWallet);
+        saveCurrentUser();
     }
 }
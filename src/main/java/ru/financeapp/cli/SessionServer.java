@@ -0,0 +1,109 @@
+package ru.financeapp.cli;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import ru.financeapp.core.BufferedOutputSink;
+import ru.financeapp.core.NotificationSink;
+import ru.financeapp.core.TransferEngine;
+import ru.financeapp.infra.Storage;
+
+/**
+ * Локальный TCP-сервер с той же грамматикой команд, что и консоль. Каждое подключение получает свою
+ * сессию ({@link ConsoleApp} со своим {@code UserService}), хранилище общее.
+ */
+public class SessionServer implements Closeable {
+    private final ServerSocket serverSocket;
+    private final Storage storage;
+    private final TransferEngine transfers;
+    private final List<NotificationSink> sinks;
+    private final ExecutorService sessions = newSessionExecutor();
+
+    public SessionServer(int port, Storage storage) throws IOException {
+        this(port, storage, new TransferEngine(storage));
+    }
+
+    public SessionServer(int port, Storage storage, TransferEngine transfers) throws IOException {
+        this(port, storage, transfers, List.of());
+    }
+
+    /** {@code sinks} получают оповещения всех сессий и должны быть потокобезопасны. */
+    public SessionServer(
+            int port, Storage storage, TransferEngine transfers, List<NotificationSink> sinks)
+            throws IOException {
+        this.serverSocket = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+        this.storage = storage;
+        this.transfers = transfers;
+        this.sinks = List.copyOf(sinks);
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /** Принимает подключения, пока сервер не закрыт. */
+    public void serve() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                sessions.execute(() -> handle(socket));
+            } catch (SocketException e) {
+                break;
+            } catch (IOException e) {
+                System.err.println("Warning: accept failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (socket;
+                BufferedReader in =
+                        new BufferedReader(
+                                new InputStreamReader(
+                                        socket.getInputStream(), StandardCharsets.UTF_8));
+                PrintStream out =
+                        new PrintStream(socket.getOutputStream(), false, StandardCharsets.UTF_8)) {
+            try (ConsoleApp session =
+                    new ConsoleApp(storage, new BufferedOutputSink(out), transfers, sinks)) {
+                session.setAdmin(false);
+                session.session(in);
+                session.saveCurrentUser();
+            }
+            out.flush();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Warning: session failed: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        sessions.shutdown();
+    }
+
+    /** Виртуальный поток на подключение, если JVM их поддерживает (21+), иначе пул потоков. */
+    private static ExecutorService newSessionExecutor() {
+        try {
+            return (ExecutorService)
+                    Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(
+                    r -> {
+                        Thread t = new Thread(r, "session");
+                        t.setDaemon(true);
+                        return t;
+                    });
+        }
+    }
+}
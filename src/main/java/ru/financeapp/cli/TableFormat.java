@@ -0,0 +1,62 @@
+package ru.financeapp.cli;
+
+/**
+ * Строка таблицы {@code | a | b | c |} с заранее заданными ширинами колонок (выравнивание влево,
+ * как {@code %-Ns}). Числа пишутся с одним знаком после точки без разбора строки формата; строка
+ * собирается в переиспользуемый буфер.
+ */
+final class TableFormat {
+    private final int[] widths;
+    private final StringBuilder row = new StringBuilder(80);
+    private int column;
+
+    TableFormat(int... widths) {
+        this.widths = widths;
+    }
+
+    TableFormat begin() {
+        row.setLength(0);
+        row.append('|');
+        column = 0;
+        return this;
+    }
+
+    TableFormat cell(CharSequence text) {
+        int start = row.length();
+        row.append(' ').append(text);
+        return endCell(start);
+    }
+
+    TableFormat cell(double value) {
+        int start = row.length();
+        row.append(' ');
+        appendAmount(row, value);
+        return endCell(start);
+    }
+
+    /** Готовая строка; действительна до следующего {@link #begin()}. */
+    CharSequence end() {
+        return row;
+    }
+
+    /** Как {@code %.1f} с {@code Locale.US}: округление половины от нуля. */
+    static StringBuilder appendAmount(StringBuilder sb, double value) {
+        long minor = Math.round(Math.abs(value) * 100);
+        long tenths = (minor + 5) / 10;
+        if (value < 0) sb.append('-');
+        return sb.append(tenths / 10).append('.').append(tenths % 10);
+    }
+
+    static String formatAmount(double value) {
+        return appendAmount(new StringBuilder(16), value).toString();
+    }
+
+    private TableFormat endCell(int start) {
+        int width = widths[column++];
+        for (int pad = width + 1 - (row.length() - start); pad > 0; pad--) {
+            row.append(' ');
+        }
+        row.append(" |");
+        return this;
+    }
+}
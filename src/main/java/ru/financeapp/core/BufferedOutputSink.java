@@ -0,0 +1,55 @@
+package ru.financeapp.core;
+
+import java.io.PrintStream;
+
+/**
+ * Копит вывод в памяти и отдаёт его потоку одним вызовом при {@link #flush()} или когда буфер
+ * перерос лимит. Так синхронизированный {@link PrintStream} трогается раз на команду или пачку
+ * строк, а не на каждую строку. Методы синхронизированы: оповещения пишутся сюда из потока {@link
+ * NotificationBus}.
+ */
+public class BufferedOutputSink implements OutputSink {
+    public static final int DEFAULT_LIMIT = 8192;
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    private final PrintStream target;
+    private final int limit;
+    private final StringBuilder buffer;
+
+    public BufferedOutputSink(PrintStream target) {
+        this(target, DEFAULT_LIMIT);
+    }
+
+    public BufferedOutputSink(PrintStream target, int limit) {
+        this.target = target;
+        this.limit = limit;
+        this.buffer = new StringBuilder(Math.min(limit, DEFAULT_LIMIT) + 256);
+    }
+
+    @Override
+    public synchronized void print(CharSequence text) {
+        buffer.append(text);
+        flushIfFull();
+    }
+
+    @Override
+    public synchronized void println(CharSequence line) {
+        buffer.append(line).append(LINE_SEPARATOR);
+        flushIfFull();
+    }
+
+    @Override
+    public synchronized void flush() {
+        if (buffer.length() > 0) {
+            target.append(buffer);
+            buffer.setLength(0);
+        }
+        target.flush();
+    }
+
+    private void flushIfFull() {
+        if (buffer.length() >= limit) {
+            flush();
+        }
+    }
+}
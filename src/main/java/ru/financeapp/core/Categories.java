@@ -0,0 +1,59 @@
+package ru.financeapp.core;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Общий для процесса словарь категорий: каждое имя получает плотный номер с нуля. Транзакции хранят
+ * номер, а суммы по категориям лежат в массивах, индексированных этим номером. Номера живут только
+ * в памяти и в файлы не попадают.
+ */
+public final class Categories {
+    /** Номер для транзакций без категории ({@code null}). */
+    static final int NONE = 0;
+
+    private static final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private static volatile String[] names = new String[64];
+    private static volatile int count = 1;
+
+    private Categories() {}
+
+    /** Номер категории; новая категория регистрируется. */
+    public static int intern(String name) {
+        if (name == null) return NONE;
+        Integer id = ids.get(name);
+        return id != null ? id : register(name);
+    }
+
+    /** Номер уже известной категории или {@code -1}: запросы не расширяют словарь. */
+    public static int find(String name) {
+        if (name == null) return NONE;
+        Integer id = ids.get(name);
+        return id != null ? id : -1;
+    }
+
+    public static String name(int id) {
+        return names[id];
+    }
+
+    /** Верхняя граница номеров на данный момент. */
+    public static int count() {
+        return count;
+    }
+
+    private static synchronized int register(String name) {
+        Integer existing = ids.get(name);
+        if (existing != null) return existing;
+        int id = count;
+        String[] current = names;
+        if (id == current.length) {
+            current = Arrays.copyOf(current, id * 2);
+        }
+        current[id] = name;
+        names = current;
+        count = id + 1;
+        ids.put(name, id);
+        return id;
+    }
+}
@@ -0,0 +1,60 @@
+package ru.financeapp.core;
+
+import java.time.LocalDate;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Суммы, разложенные по дням. Запрос за период складывает только дневные корзины внутри диапазона:
+ * O(log N + число дней) вместо прохода по всем транзакциям.
+ */
+public class DailyTotals {
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private final NavigableMap<Long, TransactionTotals> days = new TreeMap<>();
+
+    public static DailyTotals of(Iterable<Transaction> transactions) {
+        DailyTotals result = new DailyTotals();
+        transactions.forEach(result::add);
+        return result;
+    }
+
+    public static DailyTotals of(TransactionColumns columns) {
+        int[] ids = TransactionTotals.internCategories(columns);
+        DailyTotals result = new DailyTotals();
+        for (int row = 0, n = columns.size(); row < n; row++) {
+            long timestamp = columns.getTimestamp(row);
+            if (timestamp == TransactionColumns.NO_TIMESTAMP) continue;
+            result.bucket(Math.floorDiv(timestamp, MILLIS_PER_DAY))
+                    .addMinor(
+                            columns.getType(row),
+                            ids[columns.getCategoryId(row)],
+                            columns.getAmountMinor(row));
+        }
+        return result;
+    }
+
+    public void add(Transaction t) {
+        LocalDate day = t.getDay();
+        if (day != null) {
+            bucket(day.toEpochDay()).add(t);
+        }
+    }
+
+    /** Суммы за период, обе границы включительно. */
+    public TransactionTotals between(LocalDate from, LocalDate to) {
+        TransactionTotals result = new TransactionTotals();
+        days.subMap(from.toEpochDay(), true, to.toEpochDay(), true)
+                .values()
+                .forEach(result::addAll);
+        return result;
+    }
+
+    public int getDayCount() {
+        return days.size();
+    }
+
+    private TransactionTotals bucket(long epochDay) {
+        return days.computeIfAbsent(epochDay, d -> new TransactionTotals());
+    }
+}
@@ -1,34 +1,95 @@
 package ru.financeapp.core;
 
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 import ru.financeapp.exceptions.InvalidInputException;
-import ru.financeapp.exceptions.UserNotFoundException;
 import ru.financeapp.infra.Storage;
 
 public class FinanceService {
     private final UserService userService;
+    private final OutputSink out;
+    private final TransferEngine transfers;
+    private final NotificationBus notifications;
+    private Batch batch;
 
     public FinanceService(UserService userService) {
+        this(userService, OutputSink.direct(System.out));
+    }
+
+    public FinanceService(UserService userService, OutputSink out) {
+        this(userService, out, new TransferEngine(userService.getStorage()));
+    }
+
+    public FinanceService(UserService userService, OutputSink out, TransferEngine transfers) {
+        this(userService, out, transfers, NotificationBus.console(out));
+    }
+
+    /**
+     * Оповещения о бюджете и балансе не проверяются на пути записи: операция публикует снимок сумм
+     * в {@code notifications}, а правила и вывод отрабатывают в потоке шины.
+     */
+    public FinanceService(
+            UserService userService,
+            OutputSink out,
+            TransferEngine transfers,
+            NotificationBus notifications) {
         this.userService = userService;
+        this.out = out;
+        this.transfers = transfers;
+        this.notifications = notifications;
     }
 
     public void addIncome(String category, double amount) {
         validateAmount(amount);
         validateCategory(category);
-        Transaction t = new Transaction(Transaction.Type.INCOME, category, amount);
-        userService.getCurrentUser().getWallet().addTransaction(t);
-        checkNotifications(t);
+        record(new Transaction(Transaction.Type.INCOME, category, amount));
     }
 
     public void addExpense(String category, double amount) {
         validateAmount(amount);
         validateCategory(category);
-        Transaction t = new Transaction(Transaction.Type.EXPENSE, category, amount);
-        userService.getCurrentUser().getWallet().addTransaction(t);
-        checkNotifications(t);
+        record(new Transaction(Transaction.Type.EXPENSE, category, amount));
+    }
+
+    /**
+     * Пакетный режим: оповещения и сохранение кошельков откладываются до {@link #endBatch()}, где
+     * выполняются по одному разу на каждую затронутую категорию и кошелёк. Переводы и в пакете идут
+     * через {@link TransferEngine} и сохраняются сразу — откладываются только их оповещения.
+     */
+    public void beginBatch() {
+        if (batch != null) throw new InvalidInputException("Batch already in progress");
+        batch = new Batch();
+    }
+
+    public void endBatch() {
+        Batch done = batch;
+        batch = null;
+        if (done == null) return;
+        done.expenseCategories.forEach(
+                (user, categories) -> {
+                    Wallet wallet = user.getWallet();
+                    categories.forEach(category -> publishBudget(user, wallet, category));
+                    publishBalance(user, wallet);
+                });
+        Storage st = userService.getStorage();
+        done.dirty.forEach(transfers::save);
+        st.flush();
+    }
+
+    /** Дожидается вывода оповещений по уже выполненным операциям (перед приглашением ввода). */
+    public void awaitNotifications() {
+        notifications.awaitIdle();
+    }
+
+    public boolean isBatchActive() {
+        return batch != null;
     }
 
     public void setBudget(String category, double amount) {
@@ -38,31 +99,51 @@ public class FinanceService {
     }
 
     public double getTotalIncome() {
-        return userService.getCurrentUser().getWallet().getTransactions().stream()
-                .filter(t -> t.getType() == Transaction.Type.INCOME)
-                .mapToDouble(Transaction::getAmount)
-                .sum();
+        return totals().getTotal(Transaction.Type.INCOME);
     }
 
     public double getTotalExpenses() {
-        return userService.getCurrentUser().getWallet().getTransactions().stream()
-                .filter(t -> t.getType() == Transaction.Type.EXPENSE)
-                .mapToDouble(Transaction::getAmount)
-                .sum();
+        return totals().getTotal(Transaction.Type.EXPENSE);
     }
 
     public Map<String, Double> getIncomeByCategories(List<String> categories) {
-        return filterByCategories(Transaction.Type.INCOME, categories);
+        return filterByCategories(Transaction.Type.INCOME, categories, totals());
     }
 
     public Map<String, Double> getExpensesByCategories(List<String> categories) {
-        return filterByCategories(Transaction.Type.EXPENSE, categories);
+        return filterByCategories(Transaction.Type.EXPENSE, categories, totals());
+    }
+
+    public double getTotalIncome(LocalDate from, LocalDate to) {
+        return getTotalsBetween(from, to).getTotal(Transaction.Type.INCOME);
+    }
+
+    public double getTotalExpenses(LocalDate from, LocalDate to) {
+        return getTotalsBetween(from, to).getTotal(Transaction.Type.EXPENSE);
+    }
+
+    public Map<String, Double> getIncomeByCategories(
+            List<String> categories, LocalDate from, LocalDate to) {
+        return filterByCategories(Transaction.Type.INCOME, categories, getTotalsBetween(from, to));
+    }
+
+    public Map<String, Double> getExpensesByCategories(
+            List<String> categories, LocalDate from, LocalDate to) {
+        return filterByCategories(Transaction.Type.EXPENSE, categories, getTotalsBetween(from, to));
+    }
+
+    /** Суммы за период (границы включительно) по дневному индексу кошелька. */
+    public TransactionTotals getTotalsBetween(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new InvalidInputException("Start date must not be after end date");
+        }
+        return userService.getCurrentUser().getWallet().getDailyTotals().between(from, to);
     }
 
     public double getBudgetRemaining(String category) {
-        double budget = userService.getCurrentUser().getWallet().getBudget(category);
-        double spent = getExpensesByCategories(List.of(category)).getOrDefault(category, 0.0);
-        return budget - spent;
+        long budget = Money.toMinor(userService.getCurrentUser().getWallet().getBudget(category));
+        return Money.toDouble(
+                budget - totals().getCategoryTotalMinor(Transaction.Type.EXPENSE, category));
     }
 
     public boolean isBudgetExceeded(String category) {
@@ -70,70 +151,87 @@ public class FinanceService {
     }
 
     public void transfer(String toUsername, double amount) {
+        validateAmount(amount);
         User current = userService.getCurrentUser();
-        Storage st = userService.getStorage();
-        User toUser = st.findUser(toUsername);
-        if (toUser == null) throw new UserNotFoundException("Recipient not found: " + toUsername);
-        addExpense("Transfer", amount);
-        toUser.getWallet()
-                .addTransaction(new Transaction(Transaction.Type.INCOME, "Transfer", amount));
-        st.saveWallet(toUser);
+        Transaction expense = transfers.transfer(current, toUsername, amount);
+        if (batch != null) {
+            batch.touch(current, expense);
+            return;
+        }
+        publishBudget(current, current.getWallet(), TransferEngine.CATEGORY);
+        publishBalance(current, current.getWallet());
     }
 
-    private Map<String, Double> filterByCategories(Transaction.Type type, List<String> categories) {
+    private Map<String, Double> filterByCategories(
+            Transaction.Type type, List<String> categories, TransactionTotals source) {
         if (categories.isEmpty()) {
-            return getAllByType(type);
+            return source.getByCategory(type);
         }
-        Map<String, Double> result = getAllByType(type);
         Map<String, Double> budgets = userService.getCurrentUser().getWallet().getBudgets();
-        categories.forEach(
-                cat -> {
-                    if (!result.containsKey(cat) && !budgets.containsKey(cat)) {
-                        System.out.println(
-                                "Warning: Category '"
-                                        + cat
-                                        + "' not found in transactions or budgets.");
-                    }
-                });
-        return result.entrySet().stream()
-                .filter(e -> categories.contains(e.getKey()))
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        Map<String, Double> result = new HashMap<>();
+        for (String cat : categories) {
+            if (source.hasCategory(type, cat)) {
+                result.put(cat, Money.toDouble(source.getCategoryTotalMinor(type, cat)));
+            } else if (!budgets.containsKey(cat)) {
+                out.println(
+                        "Warning: Category '" + cat + "' not found in transactions or budgets.");
+            }
+        }
+        return result;
     }
 
-    private Map<String, Double> getAllByType(Transaction.Type type) {
-        return userService.getCurrentUser().getWallet().getTransactions().stream()
-                .filter(t -> t.getType() == type)
-                .collect(
-                        Collectors.groupingBy(
-                                Transaction::getCategory,
-                                Collectors.summingDouble(Transaction::getAmount)));
+    private TransactionTotals totals() {
+        return userService.getCurrentUser().getWallet().getTotals();
     }
 
-    private void validateAmount(double amount) {
-        if (amount <= 0) throw new InvalidInputException("Amount must be positive");
+    /** Проверяет сумму уже в копейках: {@code 0.004} округляется до нуля и не проходит. */
+    static void validateAmount(double amount) {
+        long minor;
+        try {
+            minor = Money.toMinor(amount);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidInputException(e.getMessage());
+        }
+        if (minor <= 0) throw new InvalidInputException("Amount must be positive");
     }
 
     private void validateCategory(String category) {
         if (category.isEmpty()) throw new InvalidInputException("Category cannot be empty");
     }
 
-    private void checkNotifications(Transaction t) {
-        if (t.getType() == Transaction.Type.EXPENSE) {
-            double remaining = getBudgetRemaining(t.getCategory());
-            double budget = userService.getCurrentUser().getWallet().getBudget(t.getCategory());
-            if (budget > 0 && remaining < 0.8 * budget) {
-                System.out.println("Warning: 80% of budget for '" + t.getCategory() + "' used!");
-            }
-            if (remaining < 0) {
-                System.out.println("Alert: Budget exceeded for '" + t.getCategory() + "'!");
-            }
+    private void record(Transaction t) {
+        User user = userService.getCurrentUser();
+        Wallet wallet = user.getWallet();
+        wallet.addTransaction(t);
+        if (batch != null) {
+            batch.touch(user, t);
+            return;
         }
-        double balance = getTotalIncome() - getTotalExpenses();
-        if (balance == 0) {
-            System.out.println("Warning: Balance is zero!");
+        if (t.getType() == Transaction.Type.EXPENSE) {
+            publishBudget(user, wallet, t.getCategory());
         }
-        if (getTotalExpenses() > getTotalIncome()) {
-            System.out.println("Alert: Expenses exceed income!");
+        publishBalance(user, wallet);
+    }
+
+    private void publishBudget(User user, Wallet wallet, String category) {
+        notifications.publish(WalletEvent.expense(user.getUsername(), wallet, category));
+    }
+
+    private void publishBalance(User user, Wallet wallet) {
+        notifications.publish(WalletEvent.balance(user.getUsername(), wallet));
+    }
+
+    private static class Batch {
+        private final Map<User, Set<String>> expenseCategories = new IdentityHashMap<>();
+        private final Set<User> dirty = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        void touch(User user, Transaction t) {
+            Set<String> categories =
+                    expenseCategories.computeIfAbsent(user, u -> new LinkedHashSet<>());
+            if (t.getType() == Transaction.Type.EXPENSE) {
+                categories.add(t.getCategory());
+            }
+            dirty.add(user);
         }
     }
 }
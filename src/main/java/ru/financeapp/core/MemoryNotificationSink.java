@@ -0,0 +1,28 @@
+package ru.financeapp.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Складывает оповещения в список; для тестов и встраивания. */
+public class MemoryNotificationSink implements NotificationSink {
+    private final List<Notification> notifications = new ArrayList<>();
+
+    @Override
+    public synchronized void accept(Notification notification) {
+        notifications.add(notification);
+    }
+
+    public synchronized List<Notification> getNotifications() {
+        return new ArrayList<>(notifications);
+    }
+
+    public synchronized List<String> getMessages() {
+        List<String> messages = new ArrayList<>(notifications.size());
+        notifications.forEach(n -> messages.add(n.getMessage()));
+        return messages;
+    }
+
+    public synchronized void clear() {
+        notifications.clear();
+    }
+}
@@ -0,0 +1,40 @@
+package ru.financeapp.core;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Денежные суммы в минорных единицах (копейках) в {@code long}: сложение точное и не требует
+ * упаковки в {@link Double}. Наружу суммы по-прежнему отдаются как {@code double}.
+ */
+public final class Money {
+    public static final int SCALE = 2;
+    private static final double MINOR_PER_UNIT = 100.0;
+
+    private Money() {}
+
+    /** Округляет до копеек (половина — вверх по модулю). */
+    public static long toMinor(double amount) {
+        if (!Double.isFinite(amount)) {
+            throw new IllegalArgumentException("Amount must be a finite number");
+        }
+        return toMinor(BigDecimal.valueOf(amount));
+    }
+
+    public static long toMinor(BigDecimal amount) {
+        try {
+            return amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Amount out of range: " + amount);
+        }
+    }
+
+    /** Разбирает десятичную запись без промежуточного {@code double}. */
+    public static long parse(String text) {
+        return toMinor(new BigDecimal(text));
+    }
+
+    public static double toDouble(long minor) {
+        return minor / MINOR_PER_UNIT;
+    }
+}
@@ -0,0 +1,38 @@
+package ru.financeapp.core;
+
+/** Оповещение, выданное правилом по событию кошелька. */
+public final class Notification {
+    private final String username;
+    private final String rule;
+    private final String message;
+    private final long timeMillis;
+
+    public Notification(String username, String rule, String message, long timeMillis) {
+        this.username = username;
+        this.rule = rule;
+        this.message = message;
+        this.timeMillis = timeMillis;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    /** Имя правила: {@code budget} или {@code balance}. */
+    public String getRule() {
+        return rule;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    @Override
+    public String toString() {
+        return message;
+    }
+}
@@ -0,0 +1,149 @@
+package ru.financeapp.core;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Шина оповещений: операции публикуют {@link WalletEvent} в ограниченную очередь, а правила и
+ * получатели отрабатывают в отдельном потоке. Поток запускается при первом событии и завершается,
+ * простояв без событий {@link #IDLE_MILLIS}. При полной очереди публикация ждёт, события не
+ * теряются и доставляются в порядке публикации.
+ */
+public class NotificationBus implements Closeable {
+    public static final int DEFAULT_CAPACITY = 1024;
+    static final long IDLE_MILLIS = 1000;
+
+    private final List<NotificationRule> rules;
+    private final List<NotificationSink> sinks;
+    private final BlockingQueue<WalletEvent> queue;
+    private final Object lock = new Object();
+    private int pending;
+    private Thread worker;
+    private boolean closed;
+
+    public NotificationBus(List<NotificationRule> rules, List<NotificationSink> sinks) {
+        this(rules, sinks, DEFAULT_CAPACITY);
+    }
+
+    public NotificationBus(
+            List<NotificationRule> rules, List<NotificationSink> sinks, int capacity) {
+        this.rules = List.copyOf(rules);
+        this.sinks = List.copyOf(sinks);
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /** Стандартные правила бюджета и баланса с выводом в сессию. */
+    public static NotificationBus console(OutputSink out) {
+        return new NotificationBus(
+                NotificationRule.defaults(), List.of(NotificationSink.console(out)));
+    }
+
+    public void publish(WalletEvent event) {
+        synchronized (lock) {
+            if (closed) {
+                dispatch(event);
+                flushSinks();
+                return;
+            }
+            pending++;
+            if (worker == null) {
+                worker = new Thread(this::drain, "notifications");
+                worker.setDaemon(true);
+                worker.start();
+            }
+        }
+        try {
+            queue.put(event);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            completed();
+        }
+    }
+
+    /** Ждёт, пока все опубликованные события будут доставлены получателям. */
+    public void awaitIdle() {
+        synchronized (lock) {
+            while (pending > 0) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /** Доставляет оставшиеся события; последующие публикации обрабатываются синхронно. */
+    @Override
+    public void close() {
+        awaitIdle();
+        synchronized (lock) {
+            closed = true;
+            if (worker != null) {
+                worker.interrupt();
+            }
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            WalletEvent event;
+            try {
+                event = queue.poll(IDLE_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                event = null;
+            }
+            if (event == null) {
+                synchronized (lock) {
+                    if (pending == 0) {
+                        worker = null;
+                        return;
+                    }
+                }
+                continue;
+            }
+            dispatch(event);
+            if (queue.isEmpty()) {
+                flushSinks();
+            }
+            completed();
+        }
+    }
+
+    private void dispatch(WalletEvent event) {
+        for (NotificationRule rule : rules) {
+            rule.evaluate(event, this::deliver);
+        }
+    }
+
+    private void deliver(Notification notification) {
+        for (NotificationSink sink : sinks) {
+            try {
+                sink.accept(notification);
+            } catch (RuntimeException e) {
+                System.err.println("Warning: notification sink failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void flushSinks() {
+        for (NotificationSink sink : sinks) {
+            try {
+                sink.flush();
+            } catch (RuntimeException e) {
+                System.err.println("Warning: notification sink failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void completed() {
+        synchronized (lock) {
+            pending--;
+            lock.notifyAll();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package ru.financeapp.core;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Правило оповещений. Получает снимок сумм из события и ничего не пересчитывает по кошельку, так
+ * что проверка стоит O(1) на событие.
+ */
+public interface NotificationRule {
+    void evaluate(WalletEvent event, Consumer<Notification> emit);
+
+    /** Использовано 80% бюджета категории и бюджет превышен. */
+    static NotificationRule budget() {
+        return (event, emit) -> {
+            if (event.getKind() != WalletEvent.Kind.EXPENSE) return;
+            long budget = event.getBudgetMinor();
+            long remaining = budget - event.getSpentMinor();
+            if (budget > 0 && remaining * 5 < budget * 4) {
+                emit.accept(
+                        notification(
+                                event,
+                                "budget",
+                                "Warning: 80% of budget for '" + event.getCategory() + "' used!"));
+            }
+            if (remaining < 0) {
+                emit.accept(
+                        notification(
+                                event,
+                                "budget",
+                                "Alert: Budget exceeded for '" + event.getCategory() + "'!"));
+            }
+        };
+    }
+
+    /** Нулевой баланс и расходы больше доходов. */
+    static NotificationRule balance() {
+        return (event, emit) -> {
+            if (event.getKind() != WalletEvent.Kind.BALANCE) return;
+            if (event.getIncomeMinor() == event.getExpensesMinor()) {
+                emit.accept(notification(event, "balance", "Warning: Balance is zero!"));
+            }
+            if (event.getExpensesMinor() > event.getIncomeMinor()) {
+                emit.accept(notification(event, "balance", "Alert: Expenses exceed income!"));
+            }
+        };
+    }
+
+    static List<NotificationRule> defaults() {
+        return List.of(budget(), balance());
+    }
+
+    private static Notification notification(WalletEvent event, String rule, String message) {
+        return new Notification(event.getUsername(), rule, message, event.getTimeMillis());
+    }
+}
@@ -0,0 +1,14 @@
+package ru.financeapp.core;
+
+/** Получатель оповещений; вызывается из потока {@link NotificationBus}. */
+public interface NotificationSink {
+    void accept(Notification notification);
+
+    /** Вызывается, когда очередь шины опустела: подходящий момент сбросить буферы. */
+    default void flush() {}
+
+    /** Оповещения строками в вывод сессии. */
+    static NotificationSink console(OutputSink out) {
+        return notification -> out.println(notification.getMessage());
+    }
+}
@@ -0,0 +1,33 @@
+package ru.financeapp.core;
+
+import java.io.PrintStream;
+
+/** Куда сервисы и консоль пишут сообщения пользователю. */
+public interface OutputSink {
+    void print(CharSequence text);
+
+    void println(CharSequence line);
+
+    /** Отдаёт накопленный вывод получателю (перед приглашением ввода, в конце пакета). */
+    void flush();
+
+    /** Вывод без буфера: каждая строка сразу уходит в поток. */
+    static OutputSink direct(PrintStream stream) {
+        return new OutputSink() {
+            @Override
+            public void print(CharSequence text) {
+                stream.print(text);
+            }
+
+            @Override
+            public void println(CharSequence line) {
+                stream.println(line);
+            }
+
+            @Override
+            public void flush() {
+                stream.flush();
+            }
+        };
+    }
+}
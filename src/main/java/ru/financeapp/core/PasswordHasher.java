@@ -0,0 +1,133 @@
+package ru.financeapp.core;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * Хеширование паролей PBKDF2-HMAC-SHA256 с солью. Запись имеет вид {@code
+ * pbkdf2$<итерации>$<соль>$<хеш>}, так что число итераций можно менять без потери старых записей.
+ * Записи без префикса считаются паролями открытым текстом из старых версий.
+ *
+ * <p>Успешные проверки запоминаются: для пары (запись, пароль) хранится SHA-256 от соли и пароля, и
+ * повторный вход той же сессии или клиента сервера не считает PBKDF2 заново. Все сравнения — {@link
+ * MessageDigest#isEqual} с постоянным временем.
+ */
+public class PasswordHasher {
+    public static final int DEFAULT_ITERATIONS = 120_000;
+    static final String PREFIX = "pbkdf2$";
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+    private static final int VERIFIED_CACHE_SIZE = 1024;
+    private static volatile PasswordHasher shared = new PasswordHasher(DEFAULT_ITERATIONS);
+
+    private final int iterations;
+    private final SecureRandom random = new SecureRandom();
+    private final Map<String, byte[]> verified =
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+                    return size() > VERIFIED_CACHE_SIZE;
+                }
+            };
+
+    public PasswordHasher(int iterations) {
+        if (iterations <= 0) {
+            throw new IllegalArgumentException("Iterations must be positive");
+        }
+        this.iterations = iterations;
+    }
+
+    /** Общий экземпляр: сессии сервера делят кэш проверенных паролей. */
+    public static PasswordHasher shared() {
+        return shared;
+    }
+
+    /** Заменяет общий экземпляр (при запуске, например с другим числом итераций). */
+    public static void setShared(PasswordHasher hasher) {
+        shared = hasher;
+    }
+
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        Base64.Encoder b64 = Base64.getEncoder().withoutPadding();
+        return PREFIX
+                + iterations
+                + "$"
+                + b64.encodeToString(salt)
+                + "$"
+                + b64.encodeToString(pbkdf2(password, salt, iterations));
+    }
+
+    public boolean verify(String password, String stored) {
+        if (stored == null || password == null) return false;
+        if (!stored.startsWith(PREFIX)) {
+            return MessageDigest.isEqual(
+                    password.getBytes(StandardCharsets.UTF_8),
+                    stored.getBytes(StandardCharsets.UTF_8));
+        }
+        String[] parts = stored.split("\\$");
+        if (parts.length != 4) return false;
+        byte[] salt;
+        byte[] expected;
+        int rounds;
+        try {
+            rounds = Integer.parseInt(parts[1]);
+            salt = Base64.getDecoder().decode(parts[2]);
+            expected = Base64.getDecoder().decode(parts[3]);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        if (rounds <= 0) return false;
+        byte[] fast = sha256(salt, password);
+        byte[] remembered;
+        synchronized (verified) {
+            remembered = verified.get(stored);
+        }
+        if (remembered != null && MessageDigest.isEqual(remembered, fast)) {
+            return true;
+        }
+        boolean ok = MessageDigest.isEqual(expected, pbkdf2(password, salt, rounds));
+        if (ok) {
+            synchronized (verified) {
+                verified.put(stored, fast);
+            }
+        }
+        return ok;
+    }
+
+    /** Запись открытым текстом или с другим числом итераций стоит перехешировать при входе. */
+    public boolean needsRehash(String stored) {
+        return stored == null || !stored.startsWith(PREFIX + iterations + "$");
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int rounds) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, rounds, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to hash password", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    private static byte[] sha256(byte[] salt, String password) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(salt);
+            return digest.digest(password.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -1,11 +1,16 @@
 package ru.financeapp.core;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
 import java.util.Objects;
 
 import com.google.gson.annotations.Expose;
+import com.google.gson.annotations.JsonAdapter;
 
+@JsonAdapter(TransactionJsonAdapter.class)
 public class Transaction {
     public enum Type {
         INCOME,
@@ -13,15 +18,46 @@ public class Transaction {
     }
 
     @Expose private Type type;
-    @Expose private String category;
-    @Expose private double amount;
+
+    /** Номер в {@link Categories}. */
+    @Expose private int category;
+
+    /** Сумма в минорных единицах, см. {@link Money}. */
+    @Expose private long amount;
+
     @Expose private String date;
 
     public Transaction(Type type, String category, double amount) {
+        this(
+                type,
+                category,
+                LocalDateTime.now()
+                        .truncatedTo(ChronoUnit.MILLIS)
+                        .format(DateTimeFormatter.ISO_LOCAL_DATE_TIME),
+                Money.toMinor(amount));
+    }
+
+    public Transaction(Type type, String category, double amount, String date) {
+        this(type, category, date, Money.toMinor(amount));
+    }
+
+    private Transaction(Type type, String category, String date, long amountMinor) {
+        this(type, Categories.intern(category), date, amountMinor);
+    }
+
+    private Transaction(Type type, int categoryId, String date, long amountMinor) {
         this.type = type;
-        this.category = category;
-        this.amount = amount;
-        this.date = LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+        this.category = categoryId;
+        this.amount = amountMinor;
+        this.date = date;
+    }
+
+    public static Transaction ofMinor(Type type, String category, long amountMinor, String date) {
+        return new Transaction(type, category, date, amountMinor);
+    }
+
+    public static Transaction ofMinor(Type type, int categoryId, long amountMinor, String date) {
+        return new Transaction(type, categoryId, date, amountMinor);
     }
 
     public Type getType() {
@@ -29,10 +65,18 @@ public class Transaction {
     }
 
     public String getCategory() {
+        return Categories.name(category);
+    }
+
+    public int getCategoryId() {
         return category;
     }
 
     public double getAmount() {
+        return Money.toDouble(amount);
+    }
+
+    public long getAmountMinor() {
         return amount;
     }
 
@@ -40,14 +84,27 @@ public class Transaction {
         return date;
     }
 
+    /**
+     * Календарный день транзакции или {@code null}, если дата не указана или не начинается с {@code
+     * yyyy-mm-dd} (например, в старом или импортированном файле).
+     */
+    public LocalDate getDay() {
+        if (date == null || date.length() < 10) return null;
+        try {
+            return LocalDate.parse(date.substring(0, 10));
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Transaction that = (Transaction) o;
-        return Double.compare(that.amount, amount) == 0
+        return amount == that.amount
                 && type == that.type
-                && Objects.equals(category, that.category)
+                && category == that.category
                 && Objects.equals(date, that.date);
     }
 
@@ -0,0 +1,29 @@
+package ru.financeapp.core;
+
+/**
+ * Транзакции в виде колонок примитивов. Позволяет считать агрегаты построчно без создания объектов
+ * {@link Transaction}.
+ */
+public interface TransactionColumns {
+    /** Значение {@link #getTimestamp(int)} для транзакции без даты. */
+    long NO_TIMESTAMP = Long.MIN_VALUE;
+
+    int size();
+
+    Transaction.Type getType(int row);
+
+    int getCategoryId(int row);
+
+    /** Сумма в минорных единицах, см. {@link Money}. */
+    long getAmountMinor(int row);
+
+    /** Время транзакции в миллисекундах: локальные дата и время, отсчитанные как UTC. */
+    long getTimestamp(int row);
+
+    int getCategoryCount();
+
+    String getCategoryName(int categoryId);
+
+    /** Создаёт объект транзакции для строки (нужно только при материализации кошелька). */
+    Transaction toTransaction(int row);
+}
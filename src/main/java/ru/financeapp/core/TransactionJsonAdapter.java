@@ -0,0 +1,54 @@
+package ru.financeapp.core;
+
+import java.io.IOException;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/** Ручная (без рефлексии) JSON-форма транзакции: {@code {type, category, amount, date}}. */
+public class TransactionJsonAdapter extends TypeAdapter<Transaction> {
+    @Override
+    public void write(JsonWriter out, Transaction t) throws IOException {
+        if (t == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("type").value(t.getType().name());
+        out.name("category").value(t.getCategory());
+        out.name("amount").value(t.getAmount());
+        out.name("date").value(t.getDate());
+        out.endObject();
+    }
+
+    @Override
+    public Transaction read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        Transaction.Type type = null;
+        String category = null;
+        long amount = 0;
+        String date = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "type" -> type = Transaction.Type.valueOf(in.nextString());
+                case "category" -> category = in.nextString();
+                case "amount" -> amount = Money.parse(in.nextString());
+                case "date" -> date = in.nextString();
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        return Transaction.ofMinor(type, category, amount, date);
+    }
+}
@@ -0,0 +1,129 @@
+package ru.financeapp.core;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Накопительные суммы по типу и категории, обновляемые на каждую транзакцию. Суммы хранятся в
+ * минорных единицах ({@link Money}) в массивах, индексированных номером категории из {@link
+ * Categories}: добавление — это индексация массива без хеширования и выделений. Массивы растут до
+ * наибольшего встреченного номера, а не до размера общего словаря: дневных корзин в {@link
+ * DailyTotals} много, и почти все они касаются нескольких категорий.
+ */
+public class TransactionTotals {
+    private static final Transaction.Type[] TYPES = Transaction.Type.values();
+
+    private static final long[] NO_SUMS = new long[0];
+    private static final boolean[] NO_FLAGS = new boolean[0];
+    private static final int MIN_CAPACITY = 8;
+
+    private final long[] totals = new long[TYPES.length];
+    private final long[][] sums = new long[TYPES.length][];
+    private final boolean[][] present = new boolean[TYPES.length][];
+
+    /** Граница номеров категорий, встречавшихся у типа: дальше массивы не просматриваются. */
+    private final int[] limits = new int[TYPES.length];
+
+    public TransactionTotals() {
+        for (int i = 0; i < TYPES.length; i++) {
+            sums[i] = NO_SUMS;
+            present[i] = NO_FLAGS;
+        }
+    }
+
+    public static TransactionTotals of(Iterable<Transaction> transactions) {
+        TransactionTotals result = new TransactionTotals();
+        transactions.forEach(result::add);
+        return result;
+    }
+
+    public static TransactionTotals of(TransactionColumns columns) {
+        int[] ids = internCategories(columns);
+        TransactionTotals result = new TransactionTotals();
+        for (int row = 0, n = columns.size(); row < n; row++) {
+            result.addMinor(
+                    columns.getType(row),
+                    ids[columns.getCategoryId(row)],
+                    columns.getAmountMinor(row));
+        }
+        return result;
+    }
+
+    /** Соответствие номеров категорий в колонках номерам общего словаря. */
+    static int[] internCategories(TransactionColumns columns) {
+        int[] ids = new int[columns.getCategoryCount()];
+        for (int local = 0; local < ids.length; local++) {
+            ids[local] = Categories.intern(columns.getCategoryName(local));
+        }
+        return ids;
+    }
+
+    public void add(Transaction t) {
+        addMinor(t.getType(), t.getCategoryId(), t.getAmountMinor());
+    }
+
+    public void addMinor(Transaction.Type type, int categoryId, long amountMinor) {
+        int i = type.ordinal();
+        if (categoryId >= sums[i].length) {
+            int capacity = Math.max(categoryId + 1, Math.max(MIN_CAPACITY, sums[i].length * 2));
+            sums[i] = Arrays.copyOf(sums[i], capacity);
+            present[i] = Arrays.copyOf(present[i], capacity);
+        }
+        totals[i] += amountMinor;
+        sums[i][categoryId] += amountMinor;
+        present[i][categoryId] = true;
+        if (categoryId >= limits[i]) {
+            limits[i] = categoryId + 1;
+        }
+    }
+
+    public void addAll(TransactionTotals other) {
+        for (Transaction.Type type : TYPES) {
+            int i = type.ordinal();
+            for (int id = 0; id < other.limits[i]; id++) {
+                if (other.present[i][id]) {
+                    addMinor(type, id, other.sums[i][id]);
+                }
+            }
+        }
+    }
+
+    public double getTotal(Transaction.Type type) {
+        return Money.toDouble(getTotalMinor(type));
+    }
+
+    public long getTotalMinor(Transaction.Type type) {
+        return totals[type.ordinal()];
+    }
+
+    public double getCategoryTotal(Transaction.Type type, String category) {
+        return Money.toDouble(getCategoryTotalMinor(type, category));
+    }
+
+    public long getCategoryTotalMinor(Transaction.Type type, String category) {
+        int id = Categories.find(category);
+        return hasCategory(type, id) ? sums[type.ordinal()][id] : 0;
+    }
+
+    public boolean hasCategory(Transaction.Type type, String category) {
+        return hasCategory(type, Categories.find(category));
+    }
+
+    private boolean hasCategory(Transaction.Type type, int id) {
+        boolean[] seen = present[type.ordinal()];
+        return id >= 0 && id < seen.length && seen[id];
+    }
+
+    /** Копия сумм по категориям в рублях (для вывода). */
+    public Map<String, Double> getByCategory(Transaction.Type type) {
+        int i = type.ordinal();
+        Map<String, Double> result = new HashMap<>();
+        for (int id = 0; id < limits[i]; id++) {
+            if (present[i][id]) {
+                result.put(Categories.name(id), Money.toDouble(sums[i][id]));
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,239 @@
+package ru.financeapp.core;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.google.gson.Gson;
+import ru.financeapp.exceptions.InvalidInputException;
+import ru.financeapp.exceptions.UserNotFoundException;
+import ru.financeapp.infra.AtomicFiles;
+import ru.financeapp.infra.FileSync;
+import ru.financeapp.infra.Storage;
+
+/**
+ * Переводы между кошельками. Каждому пользователю соответствует одна из полос блокировок; пара
+ * полос берётся всегда в порядке возрастания номера, поэтому встречные переводы не
+ * взаимоблокируются, а переводы между непересекающимися парами идут параллельно.
+ *
+ * <p>Оба кошелька сохраняются как одно целое: при ошибке записи изменения откатываются. Если задан
+ * каталог журнала, перед записью туда кладётся намерение перевода; оно удаляется только после
+ * {@link Storage#flushWallets} обоих кошельков, и после сбоя процесса {@link #recover()} доводит
+ * незавершённые переводы до конца. Перед откатом намерение помечается отменённым, так что перевод,
+ * о провале которого сообщили, при восстановлении откатывается, а не проводится.
+ *
+ * <p>Получатель берётся через {@link Storage#findUser}: хранилище, общее для сессий, должно
+ * отдавать один экземпляр на имя ({@code SynchronizedStorage}), а сессии — сохранять кошельки через
+ * {@link #save}, под той же полосой, что и переводы.
+ */
+public class TransferEngine {
+    public static final String CATEGORY = "Transfer";
+
+    private final Storage storage;
+    private final Path journalDir;
+    private final ReentrantLock[] stripes;
+    private final Gson gson = new Gson();
+
+    public TransferEngine(Storage storage) {
+        this(storage, null);
+    }
+
+    public TransferEngine(Storage storage, Path journalDir) {
+        this(storage, journalDir, Math.max(16, Runtime.getRuntime().availableProcessors() * 4));
+    }
+
+    public TransferEngine(Storage storage, Path journalDir, int stripeCount) {
+        this.storage = storage;
+        this.journalDir = journalDir;
+        this.stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        if (journalDir != null) {
+            recover();
+        }
+    }
+
+    /**
+     * Переводит {@code amount} от {@code from} (кошелёк сессии) пользователю {@code toUsername}.
+     */
+    public Transaction transfer(User from, String toUsername, double amount) {
+        FinanceService.validateAmount(amount);
+        if (toUsername.equals(from.getUsername())) {
+            throw new InvalidInputException("Cannot transfer to yourself");
+        }
+        int a = stripeIndex(from.getUsername());
+        int b = stripeIndex(toUsername);
+        ReentrantLock first = stripes[Math.min(a, b)];
+        ReentrantLock second = stripes[Math.max(a, b)];
+        first.lock();
+        if (second != first) second.lock();
+        try {
+            return commit(from, toUsername, amount);
+        } finally {
+            if (second != first) second.unlock();
+            first.unlock();
+        }
+    }
+
+    /** Сохраняет кошелёк под полосой пользователя, чтобы запись не вклинилась в его перевод. */
+    public void save(User user) {
+        ReentrantLock stripe = stripes[stripeIndex(user.getUsername())];
+        stripe.lock();
+        try {
+            storage.saveWallet(user);
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    private Transaction commit(User from, String toUsername, double amount) {
+        User to = storage.findUser(toUsername);
+        if (to == null) throw new UserNotFoundException("Recipient not found: " + toUsername);
+        Transaction expense = new Transaction(Transaction.Type.EXPENSE, CATEGORY, amount);
+        Transaction income =
+                new Transaction(Transaction.Type.INCOME, CATEGORY, amount, expense.getDate());
+        Intent intent = new Intent(from.getUsername(), toUsername, expense, income);
+        Path journal = writeJournal(intent);
+        from.getWallet().addTransaction(expense);
+        to.getWallet().addTransaction(income);
+        boolean senderSaved = false;
+        try {
+            storage.saveWallet(to);
+            storage.saveWallet(from);
+            senderSaved = true;
+            // отложенная запись (кэш) только помечает кошельки; журнал нужен, пока они не на диске
+            storage.flushWallets(List.of(to, from));
+        } catch (RuntimeException e) {
+            if (!markAborted(journal, intent)) {
+                // отмену не записать: по журналу recover() доведёт перевод, он считается
+                // проведённым
+                return expense;
+            }
+            rollback(from, expense, to, income, senderSaved, journal);
+            throw e;
+        }
+        deleteJournal(journal);
+        return expense;
+    }
+
+    private void rollback(
+            User from,
+            Transaction expense,
+            User to,
+            Transaction income,
+            boolean senderSaved,
+            Path journal) {
+        from.getWallet().removeTransaction(expense);
+        to.getWallet().removeTransaction(income);
+        try {
+            storage.saveWallet(to);
+            if (senderSaved) storage.saveWallet(from);
+            storage.flushWallets(List.of(to, from));
+        } catch (RuntimeException e) {
+            // журнал с отметкой отмены остаётся: recover() уберёт записанную половину
+            return;
+        }
+        deleteJournal(journal);
+    }
+
+    /**
+     * Доводит до конца переводы, прерванные сбоем между записью двух кошельков, а отменённые, чей
+     * откат не удалось записать, — откатывает.
+     */
+    public void recover() {
+        if (journalDir == null || !Files.isDirectory(journalDir)) return;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(journalDir, "*.json")) {
+            for (Path entry : entries) {
+                Intent intent;
+                try (Reader reader = Files.newBufferedReader(entry, StandardCharsets.UTF_8)) {
+                    intent = gson.fromJson(reader, Intent.class);
+                }
+                if (intent != null && intent.aborted) {
+                    revert(intent.from, intent.expense);
+                    revert(intent.to, intent.income);
+                    storage.flush();
+                } else if (intent != null) {
+                    apply(intent.from, intent.expense);
+                    apply(intent.to, intent.income);
+                    storage.flush();
+                }
+                Files.delete(entry);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to recover transfers", e);
+        }
+    }
+
+    private void apply(String username, Transaction t) {
+        User user = storage.findUser(username);
+        if (user == null || user.getWallet().getTransactions().contains(t)) return;
+        user.getWallet().addTransaction(t);
+        storage.saveWallet(user);
+    }
+
+    private void revert(String username, Transaction t) {
+        User user = storage.findUser(username);
+        if (user == null || !user.getWallet().removeTransaction(t)) return;
+        storage.saveWallet(user);
+    }
+
+    /** Переписывает намерение с отметкой отмены; {@code false}, если записать её не удалось. */
+    private boolean markAborted(Path entry, Intent intent) {
+        if (entry == null) return true;
+        intent.aborted = true;
+        try {
+            AtomicFiles.writeText(entry, w -> gson.toJson(intent, w), FileSync.immediate());
+            return true;
+        } catch (IOException | RuntimeException e) {
+            intent.aborted = false;
+            return false;
+        }
+    }
+
+    private Path writeJournal(Intent intent) {
+        if (journalDir == null) return null;
+        Path entry = journalDir.resolve(UUID.randomUUID() + ".json");
+        try {
+            AtomicFiles.writeText(entry, w -> gson.toJson(intent, w), FileSync.immediate());
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to journal transfer", e);
+        }
+        return entry;
+    }
+
+    private void deleteJournal(Path entry) {
+        if (entry == null) return;
+        try {
+            Files.deleteIfExists(entry);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to clear transfer journal", e);
+        }
+    }
+
+    private int stripeIndex(String username) {
+        return Math.floorMod(Objects.hashCode(username), stripes.length);
+    }
+
+    private static class Intent {
+        private final String from;
+        private final String to;
+        private final Transaction expense;
+        private final Transaction income;
+        private boolean aborted;
+
+        Intent(String from, String to, Transaction expense, Transaction income) {
+            this.from = from;
+            this.to = to;
+            this.expense = expense;
+            this.income = income;
+        }
+    }
+}
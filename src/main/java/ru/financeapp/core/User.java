@@ -1,13 +1,16 @@
 package ru.financeapp.core;
 
 import java.util.Objects;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Supplier;
 
 import com.google.gson.annotations.Expose;
 
 public class User {
     @Expose private String username;
-    @Expose private String password;
-    @Expose private Wallet wallet;
+    @Expose private volatile String password;
+    @Expose private volatile Wallet wallet;
+    private transient volatile Supplier<Wallet> walletLoader;
 
     public User(String username, String password) {
         this.username = username;
@@ -19,16 +22,79 @@ public class User {
         return username;
     }
 
+    /** Запись пароля: хеш {@link PasswordHasher} или открытый текст у старых пользователей. */
     public String getPassword() {
         return password;
     }
 
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    /**
+     * Кошелёк; у пользователя из хранилища загружается при первом обращении. Загрузка идёт вне
+     * монитора пользователя (под ним только публикация результата), так что она не держит его, пока
+     * ждёт блокировку хранилища, — иначе обёртка, которая под своей блокировкой вызывает {@link
+     * #setWallet}, могла бы взаимно заблокироваться с ней.
+     */
     public Wallet getWallet() {
-        return wallet;
+        while (true) {
+            Supplier<Wallet> loader = walletLoader;
+            if (loader == null) {
+                return wallet;
+            }
+            Wallet loaded = loader.get();
+            synchronized (this) {
+                if (walletLoader == loader) {
+                    wallet = loaded;
+                    walletLoader = null;
+                    return loaded;
+                }
+                if (walletLoader == null) {
+                    return wallet;
+                }
+                // загрузчик успели обернуть — загружаем через новый
+            }
+        }
     }
 
     public void setWallet(Wallet wallet) {
-        this.wallet = wallet;
+        synchronized (this) {
+            // сначала кошелёк: читатель без монитора, увидевший загрузчик пустым, увидит и его
+            this.wallet = wallet;
+            this.walletLoader = null;
+        }
+    }
+
+    /** Откладывает загрузку кошелька до первого {@link #getWallet()}. */
+    public void setWalletLoader(Supplier<Wallet> loader) {
+        synchronized (this) {
+            this.walletLoader = loader;
+            this.wallet = null;
+        }
+    }
+
+    public boolean isWalletLoaded() {
+        return walletLoader == null;
+    }
+
+    /**
+     * Отложенная загрузка пойдёт под блокировкой {@code lock}: обёртки хранилищ так сохраняют свою
+     * синхронизацию для загрузки, случившейся уже после {@code findUser}.
+     */
+    public synchronized void guardWalletLoader(Lock lock) {
+        Supplier<Wallet> loader = walletLoader;
+        if (loader != null) {
+            walletLoader =
+                    () -> {
+                        lock.lock();
+                        try {
+                            return loader.get();
+                        } finally {
+                            lock.unlock();
+                        }
+                    };
+        }
     }
 
     @Override
@@ -7,29 +7,49 @@ import ru.financeapp.infra.Storage;
 
 public class UserService {
     private final Storage storage;
+    private final PasswordHasher hasher;
     private User currentUser;
 
     public UserService(Storage storage) {
+        this(storage, PasswordHasher.shared());
+    }
+
+    public UserService(Storage storage, PasswordHasher hasher) {
         this.storage = storage;
+        this.hasher = hasher;
     }
 
     public void register(String username, String password) {
         if (username.isEmpty() || password.isEmpty()) {
             throw new InvalidInputException("Username and password cannot be empty");
         }
-        if (storage.findUser(username) != null) {
+        if (storage.exists(username)) {
             throw new InvalidInputException("User already exists");
         }
-        storage.saveUser(new User(username, password));
+        storage.saveUser(new User(username, hasher.hash(password)));
     }
 
+    /**
+     * Сначала проверяет пароль по одной записи учётных данных и только после успеха загружает
+     * кошелёк. Пароль открытым текстом или с устаревшим числом итераций перехешируется.
+     */
     public User login(String username, String password) {
+        String stored = storage.findCredentials(username);
+        if (stored == null) {
+            throw new UserNotFoundException("User not found: " + username);
+        }
+        if (!hasher.verify(password, stored)) {
+            throw new InvalidCredentialsException("Invalid password");
+        }
         User user = storage.findUser(username);
         if (user == null) {
             throw new UserNotFoundException("User not found: " + username);
         }
-        if (!user.getPassword().equals(password)) {
-            throw new InvalidCredentialsException("Invalid password");
+        if (hasher.needsRehash(stored)) {
+            // только справочник: кошелёк не загружается и не переписывается
+            String upgraded = hasher.hash(password);
+            storage.saveCredentials(username, upgraded);
+            user.setPassword(upgraded);
         }
         currentUser = user;
         return user;
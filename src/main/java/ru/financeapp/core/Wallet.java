@@ -7,35 +7,165 @@ import java.util.Map;
 
 import com.google.gson.annotations.Expose;
 
+/**
+ * Кошелёк пользователя. Правки и ленивые пересчёты идут под монитором кошелька; хранилища держат
+ * его же, пока сериализуют кошелёк, так что фоновая запись не застаёт список посреди изменения.
+ */
 public class Wallet {
     @Expose private List<Transaction> transactions = new ArrayList<>();
     @Expose private Map<String, Double> budgets = new HashMap<>();
+    private transient TransactionColumns columns;
+    private transient TransactionTotals totals;
+    private transient int totalsSize;
+    private transient DailyTotals dailyTotals;
+    private transient int dailyTotalsSize;
+    private transient long version;
+    private transient long savedVersion;
 
-    public void addTransaction(Transaction t) {
+    /**
+     * Кошелёк поверх колоночного хранилища: строки из {@code columns} не превращаются в объекты,
+     * пока кто-то не запросит {@link #getTransactions()}.
+     */
+    public static Wallet ofColumns(TransactionColumns columns, Map<String, Double> budgets) {
+        Wallet wallet = new Wallet();
+        wallet.columns = columns;
+        wallet.setBudgets(budgets);
+        return wallet;
+    }
+
+    public synchronized void addTransaction(Transaction t) {
+        TransactionTotals current = getTotals();
+        boolean dailyInSync = dailyTotals != null && dailyTotalsSize == size();
         transactions.add(t);
+        version++;
+        current.add(t);
+        totalsSize = size();
+        if (dailyInSync) {
+            dailyTotals.add(t);
+            dailyTotalsSize = size();
+        }
+    }
+
+    /** Откатывает ранее добавленную транзакцию; суммы и индекс по дням пересчитаются лениво. */
+    public synchronized boolean removeTransaction(Transaction t) {
+        int i = transactions.lastIndexOf(t);
+        List<Transaction> list = transactions;
+        if (i < 0 && columns != null) {
+            list = getTransactions();
+            i = list.lastIndexOf(t);
+        }
+        if (i < 0) return false;
+        list.remove(i);
+        version++;
+        totals = null;
+        dailyTotals = null;
+        return true;
+    }
+
+    /**
+     * Суммы пересчитываются целиком только после загрузки или замены списка транзакций, дальше
+     * поддерживаются инкрементально в {@link #addTransaction}.
+     */
+    public synchronized TransactionTotals getTotals() {
+        if (totals == null || totalsSize != size()) {
+            if (columns != null) {
+                totals = TransactionTotals.of(columns);
+                transactions.forEach(totals::add);
+            } else {
+                totals = TransactionTotals.of(transactions);
+            }
+            totalsSize = size();
+        }
+        return totals;
+    }
+
+    /** Индекс по дням строится при первом запросе за период и дальше обновляется на лету. */
+    public synchronized DailyTotals getDailyTotals() {
+        if (dailyTotals == null || dailyTotalsSize != size()) {
+            if (columns != null) {
+                dailyTotals = DailyTotals.of(columns);
+                transactions.forEach(dailyTotals::add);
+            } else {
+                dailyTotals = DailyTotals.of(transactions);
+            }
+            dailyTotalsSize = size();
+        }
+        return dailyTotals;
+    }
+
+    public synchronized int size() {
+        return columns != null ? columns.size() + transactions.size() : transactions.size();
+    }
+
+    public TransactionColumns getColumns() {
+        return columns;
+    }
+
+    /** Транзакции, добавленные поверх колонок и ещё не попавшие в них. */
+    public List<Transaction> getUnmappedTransactions() {
+        return columns != null ? transactions : List.of();
     }
 
-    public void setBudget(String category, double amount) {
+    /** Заменяет хвост в памяти колонками, которые уже содержат все транзакции кошелька. */
+    public synchronized void attachColumns(TransactionColumns columns) {
+        if (columns.size() != size()) {
+            throw new IllegalArgumentException("Columns do not match wallet size");
+        }
+        this.columns = columns;
+        this.transactions = new ArrayList<>();
+    }
+
+    public synchronized void setBudget(String category, double amount) {
         budgets.put(category, amount);
+        version++;
     }
 
-    public Double getBudget(String category) {
+    public synchronized Double getBudget(String category) {
         return budgets.getOrDefault(category, 0.0);
     }
 
-    public List<Transaction> getTransactions() {
+    public synchronized List<Transaction> getTransactions() {
+        if (columns != null) {
+            List<Transaction> all = new ArrayList<>(size());
+            for (int row = 0, n = columns.size(); row < n; row++) {
+                all.add(columns.toTransaction(row));
+            }
+            all.addAll(transactions);
+            transactions = all;
+            columns = null;
+        }
         return transactions;
     }
 
-    public void setTransactions(List<Transaction> transactions) {
+    public synchronized void setTransactions(List<Transaction> transactions) {
         this.transactions = transactions != null ? transactions : new ArrayList<>();
+        this.columns = null;
+        this.totals = null;
+        this.dailyTotals = null;
+        version++;
     }
 
     public Map<String, Double> getBudgets() {
         return budgets;
     }
 
-    public void setBudgets(Map<String, Double> budgets) {
+    public synchronized void setBudgets(Map<String, Double> budgets) {
         this.budgets = budgets != null ? budgets : new HashMap<>();
+        version++;
+    }
+
+    /** Счётчик изменений; растёт при каждой правке транзакций или бюджетов. */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /** Есть ли изменения, которые ещё не переданы хранилищу. */
+    public synchronized boolean isDirty() {
+        return version != savedVersion;
+    }
+
+    /** Вызывается хранилищем после загрузки или записи кошелька. */
+    public synchronized void markSaved() {
+        savedVersion = version;
     }
 }
@@ -0,0 +1,90 @@
+package ru.financeapp.core;
+
+/**
+ * Снимок накопительных сумм кошелька после изменения. Снимается на пути записи за O(1) из {@link
+ * TransactionTotals}, а правила оповещений проверяют его уже в потоке {@link NotificationBus}, не
+ * трогая сам кошелёк.
+ */
+public final class WalletEvent {
+    public enum Kind {
+        /** Расход по категории: {@code spent} против {@code budget}. */
+        EXPENSE,
+        /** Общий баланс: {@code income} против {@code expenses}. */
+        BALANCE
+    }
+
+    private final Kind kind;
+    private final String username;
+    private final String category;
+    private final long first;
+    private final long second;
+    private final long timeMillis;
+
+    private WalletEvent(Kind kind, String username, String category, long first, long second) {
+        this.kind = kind;
+        this.username = username;
+        this.category = category;
+        this.first = first;
+        this.second = second;
+        this.timeMillis = System.currentTimeMillis();
+    }
+
+    public static WalletEvent expense(
+            String username, String category, long spentMinor, long budgetMinor) {
+        return new WalletEvent(Kind.EXPENSE, username, category, spentMinor, budgetMinor);
+    }
+
+    public static WalletEvent balance(String username, long incomeMinor, long expensesMinor) {
+        return new WalletEvent(Kind.BALANCE, username, null, incomeMinor, expensesMinor);
+    }
+
+    /** Снимок расходов по категории и бюджета на неё. */
+    static WalletEvent expense(String username, Wallet wallet, String category) {
+        return expense(
+                username,
+                category,
+                wallet.getTotals().getCategoryTotalMinor(Transaction.Type.EXPENSE, category),
+                Money.toMinor(wallet.getBudget(category)));
+    }
+
+    /** Снимок общего дохода и расхода. */
+    static WalletEvent balance(String username, Wallet wallet) {
+        TransactionTotals totals = wallet.getTotals();
+        return balance(
+                username,
+                totals.getTotalMinor(Transaction.Type.INCOME),
+                totals.getTotalMinor(Transaction.Type.EXPENSE));
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public long getSpentMinor() {
+        return first;
+    }
+
+    public long getBudgetMinor() {
+        return second;
+    }
+
+    public long getIncomeMinor() {
+        return first;
+    }
+
+    public long getExpensesMinor() {
+        return second;
+    }
+
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+}
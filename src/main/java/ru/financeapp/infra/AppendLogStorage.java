@@ -0,0 +1,231 @@
+package ru.financeapp.infra;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import ru.financeapp.core.Transaction;
+import ru.financeapp.core.User;
+import ru.financeapp.core.Wallet;
+
+/**
+ * Хранилище, в котором каждое сохранение кошелька дописывает в {@code <user>.wallet.log} только
+ * новые транзакции и изменённые бюджеты. Снимок {@code <user>.wallet.json} имеет тот же формат, что
+ * и у {@link FileJsonStorage}, и перезаписывается только при компакции.
+ *
+ * <p>Что уже записано, помнится для последних {@value #MAX_STATES} кошельков, а сами кошельки —
+ * слабыми ссылками; забытый кошелёк при следующем сохранении компактируется целиком.
+ */
+public class AppendLogStorage extends FileJsonStorage {
+    public static final int DEFAULT_COMPACTION_THRESHOLD = 1000;
+    private static final String LOG_SUFFIX = ".wallet.log";
+
+    /** {@link #replayLog} остановился на недописанной записи. */
+    private static final int TORN = -1;
+
+    private static final int MAX_STATES = 4096;
+
+    private final Gson gson = new Gson();
+    private final int compactionThreshold;
+    private final Map<String, LogState> states =
+            Collections.synchronizedMap(
+                    new LinkedHashMap<>(16, 0.75f, true) {
+                        @Override
+                        protected boolean removeEldestEntry(Map.Entry<String, LogState> eldest) {
+                            return size() > MAX_STATES;
+                        }
+                    });
+
+    public AppendLogStorage() {
+        this(DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    public AppendLogStorage(int compactionThreshold) {
+        super();
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    public AppendLogStorage(String customWalletsDir, int compactionThreshold) {
+        super(customWalletsDir);
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    @Override
+    public void loadWallet(User user) {
+        super.loadWallet(user);
+        Wallet wallet = user.getWallet();
+        // мимо addTransaction/setBudget: записи лога уже сохранены, версия кошелька не растёт
+        int records =
+                replayLog(
+                        getLogPath(user.getUsername()),
+                        wallet.getTransactions()::add,
+                        wallet.getBudgets()::put);
+        if (records == TORN) {
+            // новые записи легли бы после битой строки и при чтении потерялись бы
+            compact(user);
+            return;
+        }
+        states.put(user.getUsername(), new LogState(wallet, records));
+        wallet.markSaved();
+    }
+
+    @Override
+    public void saveWallet(User user) {
+        if (user.getWallet() == null) user.setWallet(new Wallet());
+        Wallet wallet = user.getWallet();
+        LogState state = states.get(user.getUsername());
+        if (state == null
+                || state.wallet.get() != wallet
+                || wallet.getTransactions().size() < state.persistedTransactions
+                || !wallet.getBudgets().keySet().containsAll(state.budgets.keySet())) {
+            compact(user);
+            return;
+        }
+        List<Transaction> transactions = wallet.getTransactions();
+        Path log = getLogPath(user.getUsername());
+        try {
+            Files.createDirectories(log.getParent());
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to append wallet log", e);
+        }
+        try (BufferedWriter writer =
+                Files.newBufferedWriter(
+                        log,
+                        StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.APPEND)) {
+            for (int i = state.persistedTransactions; i < transactions.size(); i++) {
+                writeRecord(writer, LogRecord.transaction(transactions.get(i)));
+                state.logRecords++;
+            }
+            for (Map.Entry<String, Double> e : wallet.getBudgets().entrySet()) {
+                if (!Objects.equals(state.budgets.get(e.getKey()), e.getValue())) {
+                    writeRecord(writer, LogRecord.budget(e.getKey(), e.getValue()));
+                    state.logRecords++;
+                }
+            }
+            writer.flush();
+            fileSync.sync(log);
+        } catch (IOException e) {
+            // хвост лога мог остаться недописанным: следующее сохранение сделает компакцию
+            states.remove(user.getUsername());
+            throw new RuntimeException("Failed to append wallet log", e);
+        }
+        state.persistedTransactions = transactions.size();
+        state.budgets = new HashMap<>(wallet.getBudgets());
+        wallet.markSaved();
+        if (state.logRecords >= compactionThreshold) {
+            compact(user);
+        }
+    }
+
+    @Override
+    public WalletSummary summarizeWallet(String username) {
+        WalletSummary summary = super.summarizeWallet(username);
+        replayLog(getLogPath(username), summary::addTransaction, summary.getBudgets()::put);
+        return summary;
+    }
+
+    /** Переписывает снимок целиком и обнуляет лог. */
+    public void compact(User user) {
+        super.saveWallet(user);
+        try {
+            deleteSuperseded(getWalletPath(user.getUsername()), getLogPath(user.getUsername()));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to truncate wallet log", e);
+        }
+        states.put(user.getUsername(), new LogState(user.getWallet(), 0));
+    }
+
+    /** Число применённых записей или {@link #TORN}, если лог обрывается битой записью. */
+    private int replayLog(
+            Path log, Consumer<Transaction> onTransaction, BiConsumer<String, Double> onBudget) {
+        if (!Files.exists(log)) return 0;
+        int records = 0;
+        try (BufferedReader reader = Files.newBufferedReader(log, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+                LogRecord record;
+                try {
+                    record = gson.fromJson(line, LogRecord.class);
+                } catch (JsonParseException e) {
+                    // недописанная последняя запись после сбоя
+                    return TORN;
+                }
+                if (record == null) continue;
+                if (record.tx != null) {
+                    onTransaction.accept(record.tx);
+                } else if (record.budget != null && record.amount != null) {
+                    onBudget.accept(record.budget, record.amount);
+                }
+                records++;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to replay wallet log", e);
+        }
+        return records;
+    }
+
+    private void writeRecord(BufferedWriter writer, LogRecord record) throws IOException {
+        writer.write(gson.toJson(record));
+        writer.newLine();
+    }
+
+    @Override
+    protected List<String> getWalletSuffixes() {
+        return List.of(WALLET_SUFFIX, LOG_SUFFIX);
+    }
+
+    protected Path getLogPath(String username) {
+        return getWalletFile(username, LOG_SUFFIX);
+    }
+
+    private static class LogRecord {
+        private Transaction tx;
+        private String budget;
+        private Double amount;
+
+        static LogRecord transaction(Transaction t) {
+            LogRecord r = new LogRecord();
+            r.tx = t;
+            return r;
+        }
+
+        static LogRecord budget(String category, Double amount) {
+            LogRecord r = new LogRecord();
+            r.budget = category;
+            r.amount = amount;
+            return r;
+        }
+    }
+
+    private static class LogState {
+        private final WeakReference<Wallet> wallet;
+        private int persistedTransactions;
+        private int logRecords;
+        private Map<String, Double> budgets;
+
+        LogState(Wallet wallet, int logRecords) {
+            this.wallet = new WeakReference<>(wallet);
+            this.persistedTransactions = wallet.getTransactions().size();
+            this.logRecords = logRecords;
+            this.budgets = new HashMap<>(wallet.getBudgets());
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package ru.financeapp.infra;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Запись файла через временный файл рядом и атомарный rename поверх старого. Временный файл всегда
+ * сбрасывается на диск до rename, так что после потери питания на месте файла лежит либо старая,
+ * либо новая версия целиком. В групповом режиме {@link FileSync} сброс и rename откладываются до
+ * прохода группы: до него файл читают после {@link FileSync#settle}.
+ */
+public final class AtomicFiles {
+    private AtomicFiles() {}
+
+    @FunctionalInterface
+    public interface Body {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface TextBody {
+        void writeTo(Writer writer) throws IOException;
+    }
+
+    public static void writeText(Path target, TextBody body, FileSync sync) throws IOException {
+        write(
+                target,
+                out -> {
+                    Writer writer =
+                            new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+                    body.writeTo(writer);
+                    writer.flush();
+                },
+                sync);
+    }
+
+    public static void write(Path target, Body body, FileSync sync) throws IOException {
+        Path dir = target.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, target.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                OutputStream out = Channels.newOutputStream(channel);
+                body.writeTo(out);
+                out.flush();
+                if (sync.isImmediate()) {
+                    channel.force(true);
+                }
+            }
+            if (!sync.isImmediate()) {
+                sync.replace(tmp, target);
+                return;
+            }
+            move(tmp, target);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        sync.syncDirectory(dir);
+    }
+
+    static void move(Path from, Path to) throws IOException {
+        try {
+            Files.move(
+                    from, to, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
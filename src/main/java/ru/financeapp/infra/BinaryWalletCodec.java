@@ -0,0 +1,144 @@
+package ru.financeapp.infra;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import ru.financeapp.core.Categories;
+import ru.financeapp.core.Money;
+import ru.financeapp.core.Transaction;
+import ru.financeapp.core.Wallet;
+
+/**
+ * Компактный бинарный формат кошелька.
+ *
+ * <pre>
+ * magic "PFWB" | version:u8
+ * categories: int count, count x UTF
+ * budgets:    int count, count x (int categoryId, double amount)
+ * transactions: int count, count x (u8 type, int categoryId, long epochMillis, [UTF date], long amount)
+ * </pre>
+ *
+ * Дата хранится как миллисекунды от эпохи в UTC-представлении локального времени транзакции, сумма
+ * — в копейках. Дата, которая не восстанавливается из миллисекунд в ту же строку (точнее
+ * миллисекунд или в другом формате), пишется как есть после метки {@link Timestamps#INEXACT}. Файлы
+ * версий 1 (сумма как {@code double}) и 2 читаются по-прежнему.
+ */
+public final class BinaryWalletCodec {
+    static final int MAGIC = 0x50465742; // "PFWB"
+    static final int VERSION = 3;
+    private static final int DOUBLE_AMOUNTS_VERSION = 1;
+    private static final Transaction.Type[] TYPES = Transaction.Type.values();
+
+    private BinaryWalletCodec() {}
+
+    public static void write(OutputStream stream, Wallet wallet) throws IOException {
+        for (String category : wallet.getBudgets().keySet()) {
+            Categories.intern(category);
+        }
+        // номер в общем словаре -> номер в словаре файла
+        int[] fileIds = new int[Categories.count()];
+        Arrays.fill(fileIds, -1);
+        List<String> dictionary = new ArrayList<>();
+        List<Transaction> transactions = wallet.getTransactions();
+        for (Transaction t : transactions) {
+            addToDictionary(t.getCategoryId(), fileIds, dictionary);
+        }
+        for (String category : wallet.getBudgets().keySet()) {
+            addToDictionary(Categories.find(category), fileIds, dictionary);
+        }
+        DataOutputStream out = new DataOutputStream(stream);
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeInt(dictionary.size());
+        for (String category : dictionary) {
+            out.writeUTF(category);
+        }
+        out.writeInt(wallet.getBudgets().size());
+        for (Map.Entry<String, Double> e : wallet.getBudgets().entrySet()) {
+            out.writeInt(fileIds[Categories.find(e.getKey())]);
+            out.writeDouble(e.getValue());
+        }
+        out.writeInt(transactions.size());
+        for (Transaction t : transactions) {
+            out.writeByte(t.getType().ordinal());
+            out.writeInt(fileIds[t.getCategoryId()]);
+            long millis = Timestamps.toExactEpochMillis(t.getDate());
+            out.writeLong(millis);
+            if (millis == Timestamps.INEXACT) {
+                out.writeUTF(t.getDate());
+            }
+            out.writeLong(t.getAmountMinor());
+        }
+        out.flush();
+    }
+
+    private static void addToDictionary(int id, int[] fileIds, List<String> dictionary) {
+        if (fileIds[id] < 0) {
+            fileIds[id] = dictionary.size();
+            dictionary.add(Categories.name(id));
+        }
+    }
+
+    public static Wallet read(InputStream stream) throws IOException {
+        Map<String, Double> budgets = new HashMap<>();
+        List<Transaction> transactions = new ArrayList<>();
+        parse(stream, budgets, transactions::add);
+        Wallet wallet = new Wallet();
+        wallet.setTransactions(transactions);
+        wallet.setBudgets(budgets);
+        return wallet;
+    }
+
+    public static WalletSummary summarize(InputStream stream) throws IOException {
+        WalletSummary summary = new WalletSummary();
+        parse(stream, summary.getBudgets(), summary::addTransaction);
+        return summary;
+    }
+
+    private static void parse(
+            InputStream stream, Map<String, Double> budgets, Consumer<Transaction> onTransaction)
+            throws IOException {
+        DataInputStream in = new DataInputStream(stream);
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a binary wallet file");
+        }
+        int version = in.readUnsignedByte();
+        if (version < DOUBLE_AMOUNTS_VERSION || version > VERSION) {
+            throw new IOException("Unsupported wallet format version: " + version);
+        }
+        String[] categories = new String[in.readInt()];
+        int[] ids = new int[categories.length];
+        for (int i = 0; i < categories.length; i++) {
+            categories[i] = in.readUTF();
+            ids[i] = Categories.intern(categories[i]);
+        }
+        int budgetCount = in.readInt();
+        for (int i = 0; i < budgetCount; i++) {
+            budgets.put(categories[in.readInt()], in.readDouble());
+        }
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            Transaction.Type type = TYPES[in.readUnsignedByte()];
+            int category = ids[in.readInt()];
+            long millis = in.readLong();
+            String date =
+                    millis == Timestamps.INEXACT && version == VERSION
+                            ? in.readUTF()
+                            : Timestamps.fromEpochMillis(millis);
+            long amount =
+                    version == DOUBLE_AMOUNTS_VERSION
+                            ? Money.toMinor(in.readDouble())
+                            : in.readLong();
+            onTransaction.accept(Transaction.ofMinor(type, category, amount, date));
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package ru.financeapp.infra;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import ru.financeapp.core.User;
+import ru.financeapp.core.Wallet;
+
+/**
+ * Хранит кошельки в {@code <user>.wallet.bin} ({@link BinaryWalletCodec}). Старые {@code
+ * .wallet.json} читаются как раньше и переводятся в бинарный формат при первом сохранении.
+ */
+public class BinaryWalletStorage extends FileJsonStorage {
+    private static final String BINARY_SUFFIX = ".wallet.bin";
+
+    public BinaryWalletStorage() {
+        super();
+    }
+
+    public BinaryWalletStorage(String customWalletsDir) {
+        super(customWalletsDir);
+    }
+
+    @Override
+    public void loadWallet(User user) {
+        Path file = settled(getBinaryWalletPath(user.getUsername()));
+        if (!Files.exists(file)) {
+            super.loadWallet(user);
+            return;
+        }
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            user.setWallet(BinaryWalletCodec.read(in));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load wallet", e);
+        }
+    }
+
+    @Override
+    public WalletSummary summarizeWallet(String username) {
+        Path file = settled(getBinaryWalletPath(username));
+        if (!Files.exists(file)) {
+            return super.summarizeWallet(username);
+        }
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            return BinaryWalletCodec.summarize(in);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load wallet", e);
+        }
+    }
+
+    @Override
+    public void saveWallet(User user) {
+        if (user.getWallet() == null) user.setWallet(new Wallet());
+        Path file = getBinaryWalletPath(user.getUsername());
+        try {
+            AtomicFiles.write(
+                    file,
+                    out -> {
+                        BufferedOutputStream buffered = new BufferedOutputStream(out);
+                        BinaryWalletCodec.write(buffered, user.getWallet());
+                        buffered.flush();
+                    },
+                    fileSync);
+            deleteSuperseded(file, getWalletPath(user.getUsername()));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to save wallet", e);
+        }
+        user.getWallet().markSaved();
+    }
+
+    @Override
+    protected List<String> getWalletSuffixes() {
+        return List.of(WALLET_SUFFIX, BINARY_SUFFIX);
+    }
+
+    protected Path getBinaryWalletPath(String username) {
+        return getWalletFile(username, BINARY_SUFFIX);
+    }
+}
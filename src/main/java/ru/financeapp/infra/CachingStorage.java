@@ -0,0 +1,231 @@
+package ru.financeapp.infra;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import ru.financeapp.core.User;
+
+/**
+ * Кэш пользователей с отложенной записью поверх другого хранилища. Последние {@code capacity}
+ * пользователей держатся в памяти в порядке LRU, {@link #saveWallet} только помечает кошелёк
+ * грязным; на диск он попадает при вытеснении, в фоновом сбросе раз в {@code flushIntervalMillis}
+ * или в {@link #flush()}. Обращения к нижнему хранилищу идут под монитором этого объекта (кроме
+ * записи отдельных кошельков в {@link #flushWallets}) и через {@link SynchronizedStorage}: его
+ * блокировка ограждает отложенную загрузку кошельков и сводки от записи, вытеснения и сжатия,
+ * которые идут в другом потоке, а кошелёк пишется под своим монитором, так что сессия не правит его
+ * посреди сериализации.
+ */
+public class CachingStorage implements Storage, Closeable {
+    private final Storage delegate;
+    private final int capacity;
+    private final Map<String, User> users = new LinkedHashMap<>(16, 0.75f, true);
+    private final Set<String> dirty = new LinkedHashSet<>();
+    private final ScheduledExecutorService flusher;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public CachingStorage(Storage delegate, int capacity) {
+        this(delegate, capacity, 0);
+    }
+
+    public CachingStorage(Storage delegate, int capacity, long flushIntervalMillis) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Cache capacity must be positive");
+        }
+        this.delegate =
+                delegate instanceof SynchronizedStorage
+                        ? delegate
+                        : new SynchronizedStorage(delegate);
+        this.capacity = capacity;
+        if (flushIntervalMillis > 0) {
+            flusher =
+                    Executors.newSingleThreadScheduledExecutor(
+                            r -> {
+                                Thread t = new Thread(r, "wallet-write-behind");
+                                t.setDaemon(true);
+                                return t;
+                            });
+            flusher.scheduleWithFixedDelay(
+                    this::flushQuietly,
+                    flushIntervalMillis,
+                    flushIntervalMillis,
+                    TimeUnit.MILLISECONDS);
+        } else {
+            flusher = null;
+        }
+    }
+
+    @Override
+    public synchronized void saveUser(User user) {
+        delegate.saveUser(user);
+        cache(user);
+    }
+
+    /** Пароль пишется сразу; кошелёк кэшированного пользователя остаётся как был. */
+    @Override
+    public synchronized void saveCredentials(String username, String password) {
+        delegate.saveCredentials(username, password);
+        User user = users.get(username);
+        if (user != null) user.setPassword(password);
+    }
+
+    @Override
+    public synchronized User findUser(String username) {
+        User user = users.get(username);
+        if (user != null) {
+            hits++;
+            return user;
+        }
+        misses++;
+        user = delegate.findUser(username);
+        if (user != null) {
+            cache(user);
+        }
+        return user;
+    }
+
+    /** Проверка пароля не загружает кошелёк и не занимает место в кэше. */
+    @Override
+    public synchronized String findCredentials(String username) {
+        User user = users.get(username);
+        return user != null ? user.getPassword() : delegate.findCredentials(username);
+    }
+
+    @Override
+    public synchronized boolean exists(String username) {
+        return users.containsKey(username) || delegate.exists(username);
+    }
+
+    /** Закэшированные пользователи отдаются как есть, остальные читаются без попадания в кэш. */
+    @Override
+    public synchronized List<User> getAllUsers() {
+        List<User> result = new ArrayList<>();
+        for (User user : delegate.getAllUsers()) {
+            User cached = users.get(user.getUsername());
+            result.add(cached != null ? cached : user);
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized void loadWallet(User user) {
+        User cached = users.get(user.getUsername());
+        if (cached != null && cached != user) {
+            user.setWallet(cached.getWallet());
+        } else if (cached == null) {
+            delegate.loadWallet(user);
+        }
+    }
+
+    /**
+     * Сводка читается из нижнего хранилища без монитора кэша, под блокировкой чтения обёртки:
+     * отложенные записи попадают в неё после {@link #flush()}.
+     */
+    @Override
+    public WalletSummary summarizeWallet(String username) {
+        return delegate.summarizeWallet(username);
+    }
+
+    @Override
+    public synchronized void saveWallet(User user) {
+        cache(user);
+        dirty.add(user.getUsername());
+        user.getWallet().markSaved();
+    }
+
+    /** Записывает все грязные кошельки и дожидается нижнего хранилища. */
+    @Override
+    public synchronized void flush() {
+        for (Iterator<String> it = dirty.iterator(); it.hasNext(); ) {
+            delegate.saveWallet(users.get(it.next()));
+            it.remove();
+        }
+        delegate.flush();
+    }
+
+    /**
+     * Пишет только грязные кошельки из {@code wallets}, вне монитора кэша: переводы между разными
+     * парами не ждут друг друга и не сбрасывают чужие отложенные записи.
+     */
+    @Override
+    public void flushWallets(List<User> wallets) {
+        List<User> pending = new ArrayList<>();
+        synchronized (this) {
+            for (User user : wallets) {
+                if (dirty.remove(user.getUsername())) {
+                    pending.add(user);
+                }
+            }
+        }
+        try {
+            for (User user : pending) {
+                delegate.saveWallet(user);
+            }
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                pending.forEach(user -> dirty.add(user.getUsername()));
+            }
+            throw e;
+        }
+        delegate.flushWallets(wallets);
+    }
+
+    @Override
+    public void close() {
+        if (flusher != null) {
+            flusher.shutdown();
+        }
+        flush();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    synchronized int dirtyCount() {
+        return dirty.size();
+    }
+
+    private void cache(User user) {
+        User previous = users.put(user.getUsername(), user);
+        if (previous != null && previous != user) {
+            previous.setWallet(user.getWallet());
+        }
+        while (users.size() > capacity) {
+            Iterator<Map.Entry<String, User>> eldest = users.entrySet().iterator();
+            Map.Entry<String, User> entry = eldest.next();
+            if (dirty.contains(entry.getKey())) {
+                delegate.saveWallet(entry.getValue());
+                dirty.remove(entry.getKey());
+            }
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            System.err.println("Warning: write-behind flush failed: " + e.getMessage());
+        }
+    }
+}
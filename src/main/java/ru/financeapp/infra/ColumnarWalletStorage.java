@@ -0,0 +1,97 @@
+package ru.financeapp.infra;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+
+import ru.financeapp.core.TransactionTotals;
+import ru.financeapp.core.User;
+import ru.financeapp.core.Wallet;
+
+/**
+ * Хранит транзакции кошелька колонками ({@link MappedTransactionColumns}). Загруженный кошелёк
+ * считает суммы прямо по отображённым колонкам, а сохранение дописывает только новые строки.
+ * Кошельки в {@code .wallet.json} читаются как раньше и переводятся в колонки при сохранении.
+ */
+public class ColumnarWalletStorage extends FileJsonStorage {
+    private static final String COLUMNS_SUFFIX = ".columns";
+
+    public ColumnarWalletStorage() {
+        super();
+    }
+
+    public ColumnarWalletStorage(String customWalletsDir) {
+        super(customWalletsDir);
+    }
+
+    @Override
+    public void loadWallet(User user) {
+        Path dir = getColumnsDir(user.getUsername());
+        settled(dir.resolve(MappedTransactionColumns.META_FILE));
+        if (!MappedTransactionColumns.exists(dir)) {
+            super.loadWallet(user);
+            return;
+        }
+        try {
+            MappedTransactionColumns columns = MappedTransactionColumns.open(dir);
+            user.setWallet(Wallet.ofColumns(columns, new HashMap<>(columns.getBudgets())));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load wallet", e);
+        }
+    }
+
+    @Override
+    public WalletSummary summarizeWallet(String username) {
+        Path dir = getColumnsDir(username);
+        settled(dir.resolve(MappedTransactionColumns.META_FILE));
+        if (!MappedTransactionColumns.exists(dir)) {
+            return super.summarizeWallet(username);
+        }
+        try {
+            MappedTransactionColumns columns = MappedTransactionColumns.open(dir);
+            WalletSummary summary =
+                    new WalletSummary(TransactionTotals.of(columns), columns.size());
+            summary.getBudgets().putAll(columns.getBudgets());
+            return summary;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load wallet", e);
+        }
+    }
+
+    @Override
+    public void saveWallet(User user) {
+        if (user.getWallet() == null) user.setWallet(new Wallet());
+        Wallet wallet = user.getWallet();
+        Path dir = getColumnsDir(user.getUsername());
+        try {
+            MappedTransactionColumns updated;
+            if (wallet.getColumns() instanceof MappedTransactionColumns mapped
+                    && mapped.getDirectory().equals(dir)) {
+                updated =
+                        mapped.append(
+                                wallet.getUnmappedTransactions(), wallet.getBudgets(), fileSync);
+            } else {
+                updated =
+                        MappedTransactionColumns.write(
+                                dir, wallet.getTransactions(), wallet.getBudgets(), fileSync);
+            }
+            wallet.attachColumns(updated);
+            deleteSuperseded(
+                    dir.resolve(MappedTransactionColumns.META_FILE),
+                    getWalletPath(user.getUsername()));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to save wallet", e);
+        }
+        wallet.markSaved();
+    }
+
+    @Override
+    protected List<String> getWalletSuffixes() {
+        return List.of(WALLET_SUFFIX, COLUMNS_SUFFIX);
+    }
+
+    protected Path getColumnsDir(String username) {
+        return getWalletFile(username, COLUMNS_SUFFIX);
+    }
+}
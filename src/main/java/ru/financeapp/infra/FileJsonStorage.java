@@ -1,24 +1,39 @@
 package ru.financeapp.infra;
 
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.Reader;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
 import ru.financeapp.core.User;
 import ru.financeapp.core.Wallet;
 
-public class FileJsonStorage implements Storage {
+public class FileJsonStorage implements Storage, Closeable {
     protected String walletsDir = "wallets/";
     private static final String USERS_FILE = "users.json";
+    protected static final String WALLET_SUFFIX = ".wallet.json";
+    private static final String MIGRATED_SUFFIX = ".migrated";
+    private static final Type USERS_TYPE = new TypeToken<HashMap<String, String>>() {}.getType();
     private final Gson gson = new Gson();
+    private Map<String, String> usersCache;
+    private FileTime usersCacheMtime;
+    private long usersCacheSize;
+    protected FileSync fileSync = FileSync.immediate();
+    private boolean sharded;
+    private volatile boolean migrated;
 
     public FileJsonStorage() {
         initDirs();
@@ -39,49 +54,93 @@ public class FileJsonStorage implements Storage {
 
     @Override
     public void saveUser(User user) {
+        saveCredentials(user.getUsername(), user.getPassword());
+        saveWallet(user);
+    }
+
+    /** Переписывает только справочник пользователей (в шардовой раскладке — один шард). */
+    @Override
+    public void saveCredentials(String username, String password) {
+        if (sharded) {
+            Path shard = getShardUsersPath(username);
+            Map<String, String> users = readUsers(shard);
+            users.put(username, password);
+            try {
+                AtomicFiles.writeText(shard, writer -> gson.toJson(users, writer), fileSync);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to save user", e);
+            }
+            return;
+        }
         Map<String, String> users = loadUsers();
-        users.put(user.getUsername(), user.getPassword());
+        users.put(username, password);
         Path usersPath = getUsersFilePath();
-        try (FileWriter writer = new FileWriter(usersPath.toString())) {
-            gson.toJson(users, writer);
+        try {
+            AtomicFiles.writeText(usersPath, writer -> gson.toJson(users, writer), fileSync);
         } catch (IOException e) {
+            usersCache = null;
             throw new RuntimeException("Failed to save user", e);
         }
-        saveWallet(user);
+        rememberUsersFileState(usersPath);
     }
 
     @Override
     public User findUser(String username) {
-        @SuppressWarnings("unchecked")
-        Map<String, String> users = loadUsers();
-        String pass = users.get(username);
+        String pass = findCredentials(username);
         if (pass == null) return null;
-        User user = new User(username, pass);
-        loadWallet(user);
-        return user;
+        return lazyUser(username, pass);
+    }
+
+    /** Читает только справочник пользователей (в шардовой раскладке — один шард). */
+    @Override
+    public String findCredentials(String username) {
+        return sharded
+                ? readUsers(getShardUsersPath(username)).get(username)
+                : loadUsers().get(username);
     }
 
     @Override
     public List<User> getAllUsers() {
-        @SuppressWarnings("unchecked")
         Map<String, String> users = loadUsers();
-        return users.keySet().stream()
-                .map(this::findUser)
-                .filter(u -> u != null)
-                .distinct()
-                .collect(Collectors.toList());
+        List<User> result = new ArrayList<>(users.size());
+        users.forEach((username, pass) -> result.add(lazyUser(username, pass)));
+        return result;
+    }
+
+    /** Пользователь, чей кошелёк прочитается через {@link #loadWallet} при первом обращении. */
+    private User lazyUser(String username, String pass) {
+        User user = new User(username, pass);
+        user.setWalletLoader(
+                () -> {
+                    User holder = new User(username, pass);
+                    loadWallet(holder);
+                    holder.getWallet().markSaved();
+                    return holder.getWallet();
+                });
+        return user;
     }
 
     @Override
     public void loadWallet(User user) {
-        Path file = Paths.get(getWalletsDir() + user.getUsername() + ".wallet.json");
+        Path file = settled(getWalletPath(user.getUsername()));
         if (!Files.exists(file)) {
             user.setWallet(new Wallet());
             return;
         }
-        try (FileReader reader = new FileReader(file.toString())) {
-            Wallet wallet = gson.fromJson(reader, Wallet.class);
-            user.setWallet(wallet != null ? wallet : new Wallet());
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            user.setWallet(WalletCodec.read(reader));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load wallet", e);
+        }
+    }
+
+    /** Суммы и бюджеты кошелька для команд, которым не нужен сам список транзакций. */
+    @Override
+    public WalletSummary summarizeWallet(String username) {
+        Path file = settled(getWalletPath(username));
+        if (!Files.exists(file)) return new WalletSummary();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return WalletCodec.summarize(reader);
         } catch (IOException e) {
             throw new RuntimeException("Failed to load wallet", e);
         }
@@ -90,35 +149,237 @@ public class FileJsonStorage implements Storage {
     @Override
     public void saveWallet(User user) {
         if (user.getWallet() == null) user.setWallet(new Wallet());
-        Path dir = Paths.get(getWalletsDir());
+        Path file = getWalletPath(user.getUsername());
         try {
-            Files.createDirectories(dir);
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to create wallet dir", e);
-        }
-        Path file = dir.resolve(user.getUsername() + ".wallet.json");
-        try (FileWriter writer = new FileWriter(file.toString())) {
-            gson.toJson(user.getWallet(), writer);
+            AtomicFiles.writeText(
+                    file, writer -> WalletCodec.write(writer, user.getWallet()), fileSync);
         } catch (IOException e) {
             throw new RuntimeException("Failed to save wallet", e);
         }
+        user.getWallet().markSaved();
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * Справочник пользователей читается с диска один раз и перечитывается только если файл
+     * изменился снаружи (по mtime и размеру).
+     */
     protected Map<String, String> loadUsers() {
-        Path file = getUsersFilePath();
-        if (!Files.exists(file)) return new HashMap<>();
-        try (FileReader reader = new FileReader(file.toString())) {
-            return gson.fromJson(reader, Map.class);
+        if (sharded) {
+            return loadShardedUsers();
+        }
+        Path file = settled(getUsersFilePath());
+        if (!Files.exists(file)) {
+            if (usersCache == null || usersCacheMtime != null) {
+                usersCache = new HashMap<>();
+                usersCacheMtime = null;
+            }
+            return usersCache;
+        }
+        if (usersCache != null && isUsersFileUnchanged(file)) {
+            return usersCache;
+        }
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            Map<String, String> users = gson.fromJson(reader, USERS_TYPE);
+            usersCache = users != null ? users : new HashMap<>();
+            rememberUsersFileState(file);
         } catch (IOException e) {
+            usersCache = null;
             return new HashMap<>();
         }
+        return usersCache;
+    }
+
+    private boolean isUsersFileUnchanged(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).equals(usersCacheMtime)
+                    && Files.size(file) == usersCacheSize;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void rememberUsersFileState(Path file) {
+        try {
+            usersCacheMtime = Files.getLastModifiedTime(file);
+            usersCacheSize = Files.size(file);
+        } catch (IOException e) {
+            usersCache = null;
+        }
     }
 
     protected String getWalletsDir() {
         return walletsDir;
     }
 
+    /** Переключает политику fsync (по умолчанию — сброс на диск после каждой записи). */
+    public void setFileSync(FileSync fileSync) {
+        this.fileSync = fileSync;
+    }
+
+    /** Сбрасывает отложенное и останавливает фоновый групповой fsync. */
+    @Override
+    public void close() {
+        try {
+            fileSync.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to sync storage", e);
+        }
+    }
+
+    /** Файл с последней записью: ожидающая групповая замена доводится до места. */
+    protected Path settled(Path file) {
+        try {
+            fileSync.settle(file);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to sync storage", e);
+        }
+        return file;
+    }
+
+    /**
+     * Удаляет файл прежнего формата кошелька. Сначала на место доводится {@code written}: иначе
+     * после потери питания не осталось бы ни старого файла, ни нового.
+     */
+    protected void deleteSuperseded(Path written, Path old) throws IOException {
+        if (Files.exists(old)) {
+            fileSync.settle(written);
+            Files.delete(old);
+        }
+    }
+
+    @Override
+    public void flush() {
+        try {
+            fileSync.flush();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to sync storage", e);
+        }
+    }
+
+    /**
+     * Раскладка по каталогам {@code <wallets>/ab/cd/} от хеша имени: в каждом каталоге свой {@code
+     * users.json} и файлы кошельков его пользователей, так что регистрация и поиск читают и пишут
+     * один маленький файл. Файлы плоской раскладки переносятся при первом обращении.
+     */
+    public void setSharded(boolean sharded) {
+        this.sharded = sharded;
+        this.migrated = false;
+    }
+
+    protected Path getWalletPath(String username) {
+        return getWalletFile(username, WALLET_SUFFIX);
+    }
+
+    /** Файл или каталог кошелька с расширением {@code suffix} в текущей раскладке. */
+    protected Path getWalletFile(String username, String suffix) {
+        if (!sharded) {
+            return Paths.get(getWalletsDir(), username + suffix);
+        }
+        ensureMigrated();
+        return getShardDir(username).resolve(username + suffix);
+    }
+
+    /** Расширения всех файлов кошелька, которые переносятся при переходе на шарды. */
+    protected List<String> getWalletSuffixes() {
+        return List.of(WALLET_SUFFIX);
+    }
+
+    protected Path getShardDir(String username) {
+        int h = username.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return Paths.get(getWalletsDir(), hex(h >>> 24), hex((h >>> 16) & 0xff));
+    }
+
+    private Path getShardUsersPath(String username) {
+        ensureMigrated();
+        return getShardDir(username).resolve(USERS_FILE);
+    }
+
+    private Map<String, String> loadShardedUsers() {
+        ensureMigrated();
+        Map<String, String> users = new HashMap<>();
+        Path root = Paths.get(getWalletsDir());
+        try (Stream<Path> shards = Files.find(root, 2, (path, attrs) -> attrs.isDirectory())) {
+            shards.filter(dir -> root.relativize(dir).getNameCount() == 2)
+                    .forEach(dir -> users.putAll(readUsers(dir.resolve(USERS_FILE))));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to list user shards", e);
+        }
+        return users;
+    }
+
+    /** Перенос идёт один раз, даже если раскладку первыми затронули параллельные чтения сводок. */
+    private void ensureMigrated() {
+        if (migrated) return;
+        synchronized (this) {
+            if (!migrated) {
+                migrateToShards();
+            }
+        }
+    }
+
+    /**
+     * Переносит пользователей из общего {@code users.json} по шардам вместе с файлами их кошельков;
+     * старый справочник переименовывается в {@code users.json.migrated}. Прерванный перенос
+     * безопасно повторяется.
+     */
+    private void migrateToShards() {
+        Path legacy = getUsersFilePath();
+        if (!Files.exists(legacy)) {
+            migrated = true;
+            return;
+        }
+        try {
+            Map<Path, Map<String, String>> shards = new HashMap<>();
+            for (Map.Entry<String, String> e : readUsers(legacy).entrySet()) {
+                String username = e.getKey();
+                Path dir = getShardDir(username);
+                Files.createDirectories(dir);
+                for (String suffix : getWalletSuffixes()) {
+                    Path flat = Paths.get(getWalletsDir(), username + suffix);
+                    if (Files.exists(flat)) {
+                        Files.move(
+                                flat,
+                                dir.resolve(username + suffix),
+                                StandardCopyOption.REPLACE_EXISTING);
+                    }
+                }
+                shards.computeIfAbsent(dir.resolve(USERS_FILE), this::readUsers)
+                        .put(username, e.getValue());
+            }
+            for (Map.Entry<Path, Map<String, String>> shard : shards.entrySet()) {
+                AtomicFiles.writeText(
+                        shard.getKey(), writer -> gson.toJson(shard.getValue(), writer), fileSync);
+                fileSync.settle(shard.getKey());
+            }
+            Files.move(
+                    legacy,
+                    legacy.resolveSibling(legacy.getFileName() + MIGRATED_SUFFIX),
+                    StandardCopyOption.REPLACE_EXISTING);
+            migrated = true;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to migrate users to shards", e);
+        }
+    }
+
+    private Map<String, String> readUsers(Path file) {
+        if (!Files.exists(settled(file))) return new HashMap<>();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            Map<String, String> users = gson.fromJson(reader, USERS_TYPE);
+            return users != null ? users : new HashMap<>();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load users", e);
+        }
+    }
+
+    private static String hex(int b) {
+        return Character.forDigit(b >>> 4, 16) + "" + Character.forDigit(b & 0xf, 16);
+    }
+
     protected Path getUsersFilePath() {
         return Paths.get(USERS_FILE);
     }
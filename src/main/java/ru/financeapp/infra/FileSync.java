@@ -0,0 +1,246 @@
+package ru.financeapp.infra;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Политика fsync для файлов хранилища. {@link #immediate()} сбрасывает каждый файл на диск сразу
+ * после записи; {@link #grouped(long)} копит изменённые файлы и каталоги и сбрасывает их одним
+ * проходом раз в окно (group commit). Файлы, заменяемые через {@link AtomicFiles}, в групповом
+ * режиме ждут сброса во временном файле: проход сначала сбрасывает их, потом переименовывает поверх
+ * старых, так что повторные записи файла в одном окне стоят одного fsync, а после потери питания на
+ * месте файла лежит предыдущая версия, но не обрезанная. Читатель такого файла сначала вызывает
+ * {@link #settle}. Запись в групповом режиме не ждёт сброса; {@link #flush()} возвращается, когда
+ * всё записанное до него уже на диске.
+ */
+public class FileSync implements Closeable {
+    private final long windowMillis;
+    private final Set<Path> pending = new LinkedHashSet<>();
+    private final Set<Path> pendingDirs = new LinkedHashSet<>();
+    private final Map<Path, Path> pendingReplaces = new LinkedHashMap<>();
+    private final AtomicInteger forcedFiles = new AtomicInteger();
+    private final Object flushLock = new Object();
+    private final ScheduledExecutorService flusher;
+
+    private FileSync(long windowMillis) {
+        this.windowMillis = windowMillis;
+        if (windowMillis > 0) {
+            flusher =
+                    Executors.newSingleThreadScheduledExecutor(
+                            r -> {
+                                Thread t = new Thread(r, "wallet-group-commit");
+                                t.setDaemon(true);
+                                return t;
+                            });
+            flusher.scheduleWithFixedDelay(
+                    this::flushQuietly, windowMillis, windowMillis, TimeUnit.MILLISECONDS);
+        } else {
+            flusher = null;
+        }
+    }
+
+    public static FileSync immediate() {
+        return new FileSync(0);
+    }
+
+    public static FileSync grouped(long windowMillis) {
+        if (windowMillis <= 0) {
+            throw new IllegalArgumentException("Group commit window must be positive");
+        }
+        return new FileSync(windowMillis);
+    }
+
+    public boolean isImmediate() {
+        return windowMillis == 0;
+    }
+
+    /** Файл изменён: сбросить сразу или в ближайшем групповом коммите. */
+    public void sync(Path file) throws IOException {
+        if (isImmediate()) {
+            forceCounted(file);
+            forceDirectory(file.toAbsolutePath().getParent());
+            return;
+        }
+        synchronized (pending) {
+            pending.add(file.toAbsolutePath());
+        }
+    }
+
+    /** Каталог, в котором файл заменён rename-ом (сам файл уже сброшен). */
+    public void syncDirectory(Path dir) {
+        if (isImmediate()) {
+            forceDirectory(dir);
+            return;
+        }
+        synchronized (pending) {
+            pendingDirs.add(dir.toAbsolutePath());
+        }
+    }
+
+    /**
+     * Записанный, но не сброшенный {@code tmp} заменит {@code target} в ближайшем проходе; прежняя
+     * ожидающая версия того же файла удаляется, не дойдя до диска. Только для группового режима.
+     */
+    void replace(Path tmp, Path target) {
+        Path superseded;
+        synchronized (pending) {
+            superseded = pendingReplaces.put(target.toAbsolutePath(), tmp);
+        }
+        if (superseded != null) {
+            deleteQuietly(superseded);
+        }
+    }
+
+    /**
+     * Доводит ожидающую замену {@code target} до места (сброс временного файла и rename), чтобы
+     * чтение увидело последнюю запись. Без ожидающей замены ничего не делает.
+     */
+    public void settle(Path target) throws IOException {
+        if (isImmediate()) return;
+        Path file = target.toAbsolutePath();
+        synchronized (flushLock) {
+            Path tmp;
+            synchronized (pending) {
+                tmp = pendingReplaces.remove(file);
+            }
+            if (tmp == null) return;
+            try {
+                commitReplace(tmp, file);
+            } catch (IOException e) {
+                requeue(tmp, file);
+                throw e;
+            }
+            synchronized (pending) {
+                pendingDirs.add(file.getParent());
+            }
+        }
+    }
+
+    /**
+     * Сбрасывает накопленное. Проходы идут по одному: если фоновый сброс уже забрал часть файлов,
+     * этот вызов дождётся его окончания.
+     */
+    public void flush() throws IOException {
+        synchronized (flushLock) {
+            Set<Path> batch;
+            Set<Path> dirs;
+            Map<Path, Path> replaces;
+            synchronized (pending) {
+                if (pending.isEmpty() && pendingDirs.isEmpty() && pendingReplaces.isEmpty()) {
+                    return;
+                }
+                batch = new LinkedHashSet<>(pending);
+                dirs = new LinkedHashSet<>(pendingDirs);
+                replaces = new LinkedHashMap<>(pendingReplaces);
+                pending.clear();
+                pendingDirs.clear();
+                pendingReplaces.clear();
+            }
+            // дописанные файлы (колонки) — до rename-ов: заменяемый файл может на них ссылаться
+            for (Path file : batch) {
+                forceCounted(file);
+                dirs.add(file.getParent());
+            }
+            IOException failure = null;
+            for (Map.Entry<Path, Path> e : replaces.entrySet()) {
+                try {
+                    commitReplace(e.getValue(), e.getKey());
+                    dirs.add(e.getKey().getParent());
+                } catch (IOException ex) {
+                    requeue(e.getValue(), e.getKey());
+                    if (failure == null) failure = ex;
+                }
+            }
+            for (Path dir : dirs) {
+                forceDirectory(dir);
+            }
+            if (failure != null) throw failure;
+        }
+    }
+
+    int pendingCount() {
+        synchronized (pending) {
+            return pending.size() + pendingDirs.size() + pendingReplaces.size();
+        }
+    }
+
+    /** Сколько файлов этот экземпляр сбросил на диск (без каталогов). */
+    int forcedFiles() {
+        return forcedFiles.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (flusher != null) {
+            flusher.shutdown();
+        }
+        flush();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException e) {
+            System.err.println("Warning: group commit failed: " + e.getMessage());
+        }
+    }
+
+    private void commitReplace(Path tmp, Path target) throws IOException {
+        forceCounted(tmp);
+        AtomicFiles.move(tmp, target);
+    }
+
+    /** Неудавшаяся замена ждёт следующего прохода, если её не вытеснила более новая запись. */
+    private void requeue(Path tmp, Path target) {
+        Path newer;
+        synchronized (pending) {
+            newer = pendingReplaces.putIfAbsent(target, tmp);
+        }
+        if (newer != null) {
+            deleteQuietly(tmp);
+        }
+    }
+
+    private static void deleteQuietly(Path tmp) {
+        try {
+            Files.deleteIfExists(tmp);
+        } catch (IOException e) {
+            // останется лишний временный файл рядом, на данные он не влияет
+        }
+    }
+
+    private void forceCounted(Path file) throws IOException {
+        force(file);
+        forcedFiles.incrementAndGet();
+    }
+
+    static void force(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        } catch (NoSuchFileException e) {
+            // файл успели удалить (например, лог после компакции)
+        }
+    }
+
+    static void forceDirectory(Path dir) {
+        if (dir == null) return;
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // каталоги открываются не на всех ОС (Windows) — там rename уже durable
+        }
+    }
+}
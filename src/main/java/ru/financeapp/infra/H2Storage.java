@@ -0,0 +1,340 @@
+package ru.financeapp.infra;
+
+import java.io.Closeable;
+import java.lang.ref.WeakReference;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import ru.financeapp.core.Categories;
+import ru.financeapp.core.Transaction;
+import ru.financeapp.core.TransactionTotals;
+import ru.financeapp.core.User;
+import ru.financeapp.core.Wallet;
+
+/**
+ * Хранилище во встроенной базе H2 (один файл {@code <path>.mv.db}, без внешнего сервера). Таблицы
+ * {@code users}, {@code transactions} и {@code budgets} с индексами по пользователю; сохранение
+ * дописывает только новые транзакции, а {@link #summarizeWallet} считает суммы в базе через {@code
+ * GROUP BY}, не поднимая строки в память.
+ *
+ * <p>Соединение одно и без автокоммита, поэтому все обращения идут под монитором хранилища: чтение
+ * не видит чужую незакоммиченную запись.
+ */
+public class H2Storage implements Storage, Closeable {
+    private static final Transaction.Type[] TYPES = Transaction.Type.values();
+    private static final String[] SCHEMA = {
+        "CREATE TABLE IF NOT EXISTS users ("
+                + "username VARCHAR PRIMARY KEY, password VARCHAR NOT NULL)",
+        "CREATE TABLE IF NOT EXISTS transactions ("
+                + "username VARCHAR NOT NULL, seq INT NOT NULL, type TINYINT NOT NULL,"
+                + " category VARCHAR, amount BIGINT NOT NULL, date VARCHAR,"
+                + " PRIMARY KEY (username, seq))",
+        "CREATE INDEX IF NOT EXISTS transactions_category"
+                + " ON transactions (username, type, category)",
+        "CREATE TABLE IF NOT EXISTS budgets ("
+                + "username VARCHAR NOT NULL, category VARCHAR NOT NULL, amount DOUBLE NOT NULL,"
+                + " PRIMARY KEY (username, category))"
+    };
+
+    /** Сколько кошельков помнить для дописывания; вытесненный запишется целиком. */
+    private static final int MAX_STATES = 4096;
+
+    private final Connection connection;
+    private final Map<String, SavedState> states =
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, SavedState> eldest) {
+                    return size() > MAX_STATES;
+                }
+            };
+
+    /** Открывает (или создаёт) базу {@code file} — путь без расширения {@code .mv.db}. */
+    public H2Storage(Path file) {
+        try {
+            connection = DriverManager.getConnection("jdbc:h2:file:" + file.toAbsolutePath());
+            try (Statement st = connection.createStatement()) {
+                for (String ddl : SCHEMA) {
+                    st.execute(ddl);
+                }
+            }
+            connection.setAutoCommit(false);
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to open database " + file, e);
+        }
+    }
+
+    @Override
+    public synchronized void saveUser(User user) {
+        saveCredentials(user.getUsername(), user.getPassword());
+        saveWallet(user);
+    }
+
+    @Override
+    public synchronized void saveCredentials(String username, String password) {
+        try (PreparedStatement ps =
+                connection.prepareStatement(
+                        "MERGE INTO users (username, password) KEY (username) VALUES (?, ?)")) {
+            ps.setString(1, username);
+            ps.setString(2, password);
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            rollback();
+            throw new RuntimeException("Failed to save user", e);
+        }
+    }
+
+    @Override
+    public synchronized User findUser(String username) {
+        String password = findCredentials(username);
+        if (password == null) return null;
+        return lazyUser(username, password);
+    }
+
+    @Override
+    public synchronized String findCredentials(String username) {
+        try (PreparedStatement ps =
+                connection.prepareStatement("SELECT password FROM users WHERE username = ?")) {
+            ps.setString(1, username);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to load user", e);
+        }
+    }
+
+    @Override
+    public synchronized List<User> getAllUsers() {
+        List<User> result = new ArrayList<>();
+        try (Statement st = connection.createStatement();
+                ResultSet rs =
+                        st.executeQuery("SELECT username, password FROM users ORDER BY username")) {
+            while (rs.next()) {
+                result.add(lazyUser(rs.getString(1), rs.getString(2)));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to load users", e);
+        }
+        return result;
+    }
+
+    private User lazyUser(String username, String password) {
+        User user = new User(username, password);
+        user.setWalletLoader(
+                () -> {
+                    User holder = new User(username, password);
+                    loadWallet(holder);
+                    return holder.getWallet();
+                });
+        return user;
+    }
+
+    @Override
+    public synchronized void loadWallet(User user) {
+        String username = user.getUsername();
+        Wallet wallet = new Wallet();
+        List<Transaction> transactions = new ArrayList<>();
+        try {
+            try (PreparedStatement ps =
+                    connection.prepareStatement(
+                            "SELECT type, category, amount, date FROM transactions"
+                                    + " WHERE username = ? ORDER BY seq")) {
+                ps.setString(1, username);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        transactions.add(
+                                Transaction.ofMinor(
+                                        TYPES[rs.getInt(1)],
+                                        rs.getString(2),
+                                        rs.getLong(3),
+                                        rs.getString(4)));
+                    }
+                }
+            }
+            wallet.setTransactions(transactions);
+            wallet.setBudgets(loadBudgets(username));
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to load wallet", e);
+        }
+        wallet.markSaved();
+        user.setWallet(wallet);
+        states.put(username, new SavedState(wallet));
+    }
+
+    /** Суммы по типам и категориям считаются в базе, транзакции в память не загружаются. */
+    @Override
+    public synchronized WalletSummary summarizeWallet(String username) {
+        TransactionTotals totals = new TransactionTotals();
+        int count = 0;
+        try {
+            try (PreparedStatement ps =
+                    connection.prepareStatement(
+                            "SELECT type, category, SUM(amount), COUNT(*) FROM transactions"
+                                    + " WHERE username = ? GROUP BY type, category")) {
+                ps.setString(1, username);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        totals.addMinor(
+                                TYPES[rs.getInt(1)],
+                                Categories.intern(rs.getString(2)),
+                                rs.getLong(3));
+                        count += rs.getInt(4);
+                    }
+                }
+            }
+            WalletSummary summary = new WalletSummary(totals, count);
+            summary.getBudgets().putAll(loadBudgets(username));
+            return summary;
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to load wallet", e);
+        }
+    }
+
+    /**
+     * Дописывает транзакции, появившиеся после прошлой загрузки или сохранения этого же кошелька;
+     * если список заменён или укорочен — переписывает транзакции пользователя целиком. Бюджеты
+     * переписываются, только если кошелёк менялся не одним добавлением транзакций. Всё в одной
+     * транзакции базы.
+     */
+    @Override
+    public synchronized void saveWallet(User user) {
+        if (user.getWallet() == null) user.setWallet(new Wallet());
+        String username = user.getUsername();
+        Wallet wallet = user.getWallet();
+        List<Transaction> transactions = wallet.getTransactions();
+        SavedState state = states.get(username);
+        int from = state != null && state.matches(wallet, transactions) ? state.transactions : 0;
+        try {
+            if (from == 0) {
+                deleteAll("DELETE FROM transactions WHERE username = ?", username);
+            }
+            insertTransactions(username, transactions, from);
+            if (from == 0 || !state.onlyAppended(wallet, transactions)) {
+                saveBudgets(username, wallet.getBudgets());
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            rollback();
+            states.remove(username);
+            throw new RuntimeException("Failed to save wallet", e);
+        }
+        states.put(username, new SavedState(wallet));
+        wallet.markSaved();
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to close database", e);
+        }
+    }
+
+    private void insertTransactions(String username, List<Transaction> transactions, int from)
+            throws SQLException {
+        if (from >= transactions.size()) return;
+        try (PreparedStatement ps =
+                connection.prepareStatement(
+                        "INSERT INTO transactions (username, seq, type, category, amount, date)"
+                                + " VALUES (?, ?, ?, ?, ?, ?)")) {
+            for (int i = from; i < transactions.size(); i++) {
+                Transaction t = transactions.get(i);
+                ps.setString(1, username);
+                ps.setInt(2, i);
+                ps.setInt(3, t.getType().ordinal());
+                ps.setString(4, t.getCategory());
+                ps.setLong(5, t.getAmountMinor());
+                ps.setString(6, t.getDate());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private void saveBudgets(String username, Map<String, Double> budgets) throws SQLException {
+        deleteAll("DELETE FROM budgets WHERE username = ?", username);
+        try (PreparedStatement ps =
+                connection.prepareStatement(
+                        "INSERT INTO budgets (username, category, amount) VALUES (?, ?, ?)")) {
+            for (Map.Entry<String, Double> e : budgets.entrySet()) {
+                ps.setString(1, username);
+                ps.setString(2, e.getKey());
+                ps.setDouble(3, e.getValue());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private Map<String, Double> loadBudgets(String username) throws SQLException {
+        Map<String, Double> budgets = new HashMap<>();
+        try (PreparedStatement ps =
+                connection.prepareStatement(
+                        "SELECT category, amount FROM budgets WHERE username = ?")) {
+            ps.setString(1, username);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    budgets.put(rs.getString(1), rs.getDouble(2));
+                }
+            }
+        }
+        return budgets;
+    }
+
+    private void deleteAll(String sql, String username) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setString(1, username);
+            ps.executeUpdate();
+        }
+    }
+
+    private void rollback() {
+        try {
+            connection.rollback();
+        } catch (SQLException ignored) {
+            // соединение уже в ошибке, исходное исключение важнее
+        }
+    }
+
+    /**
+     * Что из кошелька уже лежит в базе: сколько транзакций и последняя из них, и версия кошелька на
+     * тот момент. Сам кошелёк держится слабой ссылкой, чтобы не удерживать в памяти всё, что
+     * когда-либо загружалось.
+     */
+    private static final class SavedState {
+        private final WeakReference<Wallet> wallet;
+        private final int transactions;
+        private final Transaction last;
+        private final long version;
+
+        SavedState(Wallet wallet) {
+            List<Transaction> list = wallet.getTransactions();
+            this.wallet = new WeakReference<>(wallet);
+            this.transactions = list.size();
+            this.last = list.isEmpty() ? null : list.get(list.size() - 1);
+            this.version = wallet.getVersion();
+        }
+
+        boolean matches(Wallet current, List<Transaction> list) {
+            return current == wallet.get()
+                    && list.size() >= transactions
+                    && (transactions == 0 || list.get(transactions - 1) == last);
+        }
+
+        /** Каждое добавление транзакции увеличивает версию на один; любая другая правка — сверх. */
+        boolean onlyAppended(Wallet current, List<Transaction> list) {
+            return current.getVersion() - version == list.size() - transactions;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package ru.financeapp.infra;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import ru.financeapp.core.Notification;
+import ru.financeapp.core.NotificationSink;
+
+/**
+ * Журнал оповещений: по JSON-объекту на строку ({@code time}, {@code user}, {@code rule}, {@code
+ * message}), дописывается в конец файла. Строки копятся в буфере и уходят на диск, когда очередь
+ * шины опустела. Один журнал можно делить между сессиями.
+ */
+public class JsonlNotificationSink implements NotificationSink, Closeable {
+    private final Gson gson = new Gson();
+    private final BufferedWriter writer;
+
+    public JsonlNotificationSink(Path file) {
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            writer =
+                    Files.newBufferedWriter(
+                            file,
+                            StandardCharsets.UTF_8,
+                            StandardOpenOption.CREATE,
+                            StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open notification log " + file, e);
+        }
+    }
+
+    @Override
+    public synchronized void accept(Notification notification) {
+        JsonObject line = new JsonObject();
+        line.addProperty("time", Instant.ofEpochMilli(notification.getTimeMillis()).toString());
+        line.addProperty("user", notification.getUsername());
+        line.addProperty("rule", notification.getRule());
+        line.addProperty("message", notification.getMessage());
+        try {
+            writer.write(gson.toJson(line));
+            writer.newLine();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write notification log", e);
+        }
+    }
+
+    @Override
+    public synchronized void flush() {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to flush notification log", e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to close notification log", e);
+        }
+    }
+}
@@ -0,0 +1,412 @@
+package ru.financeapp.infra;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import ru.financeapp.core.Categories;
+import ru.financeapp.core.Money;
+import ru.financeapp.core.Transaction;
+import ru.financeapp.core.TransactionColumns;
+
+/**
+ * Колонки кошелька в отдельных файлах каталога {@code <user>.columns/}, отображённых в память:
+ * {@code type.col} (byte), {@code category.col} (int), {@code amount.col} (long, копейки), {@code
+ * time.col} (long). Число строк, словарь категорий и бюджеты лежат в {@code meta.bin}; он
+ * переписывается последним, поэтому недописанный после сбоя хвост колонок просто игнорируется.
+ * Дата, которую миллисекунды не передают без потерь (точнее миллисекунд или не полная ISO-дата),
+ * пишется в {@code time.col} меткой {@link Timestamps#INEXACT}, а сама строка — в {@code meta.bin}.
+ *
+ * <p>Полная перезапись (и перевод старых версий) пишет колонки следующего поколения в новые файлы
+ * ({@code amount.1.col} и т.д.) и переключается на них записью {@code meta.bin}: после сбоя
+ * остаются либо старые колонки со старым meta, либо новые с новым. Открытие ничего не переписывает,
+ * файлы версии 1 (суммы в {@code double}) читаются как есть и переводятся при следующем сохранении.
+ */
+public final class MappedTransactionColumns implements TransactionColumns {
+    static final String META_FILE = "meta.bin";
+    private static final String TYPE_COLUMN = "type";
+    private static final String CATEGORY_COLUMN = "category";
+    private static final String AMOUNT_COLUMN = "amount";
+    private static final String TIME_COLUMN = "time";
+    private static final String[] COLUMNS = {
+        TYPE_COLUMN, CATEGORY_COLUMN, AMOUNT_COLUMN, TIME_COLUMN
+    };
+    private static final int MAGIC = 0x50465743; // "PFWC"
+    private static final int VERSION = 4;
+    private static final int GENERATIONS_VERSION = 3;
+    private static final int DOUBLE_AMOUNTS_VERSION = 1;
+    private static final Transaction.Type[] TYPES = Transaction.Type.values();
+
+    private final Path directory;
+    private final int version;
+    private final int generation;
+    private final int rows;
+    private final List<String> categories;
+    private final int[] globalCategoryIds;
+    private final Map<String, Double> budgets;
+    private final Map<Integer, String> inexactDates;
+    private final ByteBuffer types;
+    private final IntBuffer categoryIds;
+    private final LongBuffer amounts;
+    private final DoubleBuffer legacyAmounts;
+    private final LongBuffer timestamps;
+
+    private MappedTransactionColumns(
+            Path directory,
+            int version,
+            int generation,
+            int rows,
+            List<String> categories,
+            Map<String, Double> budgets,
+            Map<Integer, String> inexactDates)
+            throws IOException {
+        this.directory = directory;
+        this.version = version;
+        this.generation = generation;
+        this.rows = rows;
+        this.categories = categories;
+        this.globalCategoryIds = categories.stream().mapToInt(Categories::intern).toArray();
+        this.budgets = budgets;
+        this.inexactDates = inexactDates;
+        this.types = map(column(directory, TYPE_COLUMN, generation), rows);
+        this.categoryIds =
+                map(column(directory, CATEGORY_COLUMN, generation), rows * 4L).asIntBuffer();
+        ByteBuffer amountColumn = map(column(directory, AMOUNT_COLUMN, generation), rows * 8L);
+        if (version == DOUBLE_AMOUNTS_VERSION) {
+            this.amounts = null;
+            this.legacyAmounts = amountColumn.asDoubleBuffer();
+        } else {
+            this.amounts = amountColumn.asLongBuffer();
+            this.legacyAmounts = null;
+        }
+        this.timestamps = map(column(directory, TIME_COLUMN, generation), rows * 8L).asLongBuffer();
+    }
+
+    /** Файл колонки: у поколения 0 (и у файлов до версии 3) — без номера, {@code amount.col}. */
+    private static Path column(Path directory, String name, int generation) {
+        return directory.resolve(
+                generation == 0 ? name + ".col" : name + "." + generation + ".col");
+    }
+
+    public static boolean exists(Path directory) {
+        return Files.exists(directory.resolve(META_FILE));
+    }
+
+    public static MappedTransactionColumns open(Path directory) throws IOException {
+        try (DataInputStream in =
+                new DataInputStream(
+                        new BufferedInputStream(
+                                Files.newInputStream(directory.resolve(META_FILE))))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a column store: " + directory);
+            }
+            int version = in.readUnsignedByte();
+            if (version < DOUBLE_AMOUNTS_VERSION || version > VERSION) {
+                throw new IOException("Unsupported column store version: " + version);
+            }
+            int generation = version >= GENERATIONS_VERSION ? in.readInt() : 0;
+            int rows = in.readInt();
+            int categoryCount = in.readInt();
+            List<String> categories = new ArrayList<>(categoryCount);
+            for (int i = 0; i < categoryCount; i++) {
+                categories.add(in.readUTF());
+            }
+            int budgetCount = in.readInt();
+            Map<String, Double> budgets = new HashMap<>();
+            for (int i = 0; i < budgetCount; i++) {
+                budgets.put(in.readUTF(), in.readDouble());
+            }
+            Map<Integer, String> inexactDates = new TreeMap<>();
+            if (version == VERSION) {
+                int dateCount = in.readInt();
+                for (int i = 0; i < dateCount; i++) {
+                    inexactDates.put(in.readInt(), in.readUTF());
+                }
+            }
+            return new MappedTransactionColumns(
+                    directory, version, generation, rows, categories, budgets, inexactDates);
+        }
+    }
+
+    /**
+     * Полностью переписывает колонки каталога: в файлы нового поколения, старое удаляется после
+     * переключения {@code meta.bin}.
+     */
+    public static MappedTransactionColumns write(
+            Path directory,
+            List<Transaction> transactions,
+            Map<String, Double> budgets,
+            FileSync sync)
+            throws IOException {
+        sync.settle(directory.resolve(META_FILE));
+        int previous = exists(directory) ? readGeneration(directory) : -1;
+        int generation = previous + 1;
+        MappedTransactionColumns written =
+                writeRows(
+                        directory,
+                        generation,
+                        0,
+                        new ArrayList<>(),
+                        new TreeMap<>(),
+                        transactions,
+                        budgets,
+                        sync);
+        if (previous >= 0) {
+            // старое поколение удаляется, только когда на диске meta.bin уже ссылается на новое
+            sync.settle(directory.resolve(META_FILE));
+            for (String name : COLUMNS) {
+                try {
+                    Files.deleteIfExists(column(directory, name, previous));
+                } catch (IOException e) {
+                    // файл старого поколения может быть ещё открыт; meta на него уже не ссылается
+                }
+            }
+        }
+        return written;
+    }
+
+    private static int readGeneration(Path directory) throws IOException {
+        try (DataInputStream in =
+                new DataInputStream(Files.newInputStream(directory.resolve(META_FILE)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a column store: " + directory);
+            }
+            return in.readUnsignedByte() >= GENERATIONS_VERSION ? in.readInt() : 0;
+        }
+    }
+
+    /**
+     * Дописывает транзакции в конец колонок, не трогая уже записанные строки. Каталог старой версии
+     * переписывается целиком в текущую.
+     */
+    public MappedTransactionColumns append(
+            List<Transaction> transactions, Map<String, Double> budgets, FileSync sync)
+            throws IOException {
+        if (version != VERSION) {
+            List<Transaction> all = new ArrayList<>(rows + transactions.size());
+            for (int row = 0; row < rows; row++) {
+                all.add(toTransaction(row));
+            }
+            all.addAll(transactions);
+            return write(directory, all, budgets, sync);
+        }
+        return writeRows(
+                directory,
+                generation,
+                rows,
+                new ArrayList<>(categories),
+                new TreeMap<>(inexactDates),
+                transactions,
+                budgets,
+                sync);
+    }
+
+    private static MappedTransactionColumns writeRows(
+            Path directory,
+            int generation,
+            int startRow,
+            List<String> categories,
+            Map<Integer, String> inexactDates,
+            List<Transaction> transactions,
+            Map<String, Double> budgets,
+            FileSync sync)
+            throws IOException {
+        Files.createDirectories(directory);
+        categories.forEach(Categories::intern);
+        // номер в общем словаре -> номер в словаре каталога
+        int[] fileIds = new int[Categories.count()];
+        Arrays.fill(fileIds, -1);
+        for (int i = 0; i < categories.size(); i++) {
+            fileIds[Categories.find(categories.get(i))] = i;
+        }
+        int n = transactions.size();
+        ByteBuffer typeColumn = ByteBuffer.allocate(n);
+        ByteBuffer categoryColumn = ByteBuffer.allocate(n * 4);
+        ByteBuffer amountColumn = ByteBuffer.allocate(n * 8);
+        ByteBuffer timeColumn = ByteBuffer.allocate(n * 8);
+        int row = startRow;
+        for (Transaction t : transactions) {
+            int id = fileIds[t.getCategoryId()];
+            if (id < 0) {
+                id = categories.size();
+                categories.add(t.getCategory());
+                fileIds[t.getCategoryId()] = id;
+            }
+            typeColumn.put((byte) t.getType().ordinal());
+            categoryColumn.putInt(id);
+            amountColumn.putLong(t.getAmountMinor());
+            long millis = Timestamps.toExactEpochMillis(t.getDate());
+            if (millis == Timestamps.INEXACT) {
+                inexactDates.put(row, t.getDate());
+            }
+            timeColumn.putLong(millis);
+            row++;
+        }
+        writeColumn(column(directory, TYPE_COLUMN, generation), startRow, typeColumn, sync);
+        writeColumn(
+                column(directory, CATEGORY_COLUMN, generation),
+                startRow * 4L,
+                categoryColumn,
+                sync);
+        writeColumn(
+                column(directory, AMOUNT_COLUMN, generation), startRow * 8L, amountColumn, sync);
+        writeColumn(column(directory, TIME_COLUMN, generation), startRow * 8L, timeColumn, sync);
+        writeMeta(directory, generation, startRow + n, categories, budgets, inexactDates, sync);
+        // в групповом режиме meta.bin ещё не на месте — открываем по тому, что записали
+        return new MappedTransactionColumns(
+                directory,
+                VERSION,
+                generation,
+                startRow + n,
+                categories,
+                new HashMap<>(budgets),
+                inexactDates);
+    }
+
+    private static void writeColumn(Path file, long offset, ByteBuffer data, FileSync sync)
+            throws IOException {
+        data.flip();
+        try (FileChannel channel =
+                FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            if (channel.size() > offset) {
+                channel.truncate(offset);
+            }
+            long position = offset;
+            while (data.hasRemaining()) {
+                position += channel.write(data, position);
+            }
+            if (sync.isImmediate()) {
+                channel.force(true);
+            }
+        }
+        if (!sync.isImmediate()) {
+            sync.sync(file);
+        }
+    }
+
+    private static void writeMeta(
+            Path directory,
+            int generation,
+            int rows,
+            List<String> categories,
+            Map<String, Double> budgets,
+            Map<Integer, String> inexactDates,
+            FileSync sync)
+            throws IOException {
+        AtomicFiles.write(
+                directory.resolve(META_FILE),
+                stream -> {
+                    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+                    out.writeInt(MAGIC);
+                    out.writeByte(VERSION);
+                    out.writeInt(generation);
+                    out.writeInt(rows);
+                    out.writeInt(categories.size());
+                    for (String category : categories) {
+                        out.writeUTF(category);
+                    }
+                    out.writeInt(budgets.size());
+                    for (Map.Entry<String, Double> e : budgets.entrySet()) {
+                        out.writeUTF(e.getKey());
+                        out.writeDouble(e.getValue());
+                    }
+                    out.writeInt(inexactDates.size());
+                    for (Map.Entry<Integer, String> e : inexactDates.entrySet()) {
+                        out.writeInt(e.getKey());
+                        out.writeUTF(e.getValue());
+                    }
+                    out.flush();
+                },
+                sync);
+    }
+
+    private static ByteBuffer map(Path file, long size) throws IOException {
+        if (size == 0) return ByteBuffer.allocate(0);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < size) {
+                throw new IOException("Column file is truncated: " + file);
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public Map<String, Double> getBudgets() {
+        return Collections.unmodifiableMap(budgets);
+    }
+
+    @Override
+    public int size() {
+        return rows;
+    }
+
+    @Override
+    public Transaction.Type getType(int row) {
+        return TYPES[types.get(row)];
+    }
+
+    @Override
+    public int getCategoryId(int row) {
+        return categoryIds.get(row);
+    }
+
+    @Override
+    public long getAmountMinor(int row) {
+        return amounts != null ? amounts.get(row) : Money.toMinor(legacyAmounts.get(row));
+    }
+
+    /** Для даты, сохранённой строкой, — приближение по ней (до миллисекунд или до дня). */
+    @Override
+    public long getTimestamp(int row) {
+        long millis = timestamps.get(row);
+        return millis == Timestamps.INEXACT
+                ? Timestamps.toApproximateMillis(inexactDates.get(row))
+                : millis;
+    }
+
+    @Override
+    public int getCategoryCount() {
+        return categories.size();
+    }
+
+    @Override
+    public String getCategoryName(int categoryId) {
+        return categories.get(categoryId);
+    }
+
+    @Override
+    public Transaction toTransaction(int row) {
+        return Transaction.ofMinor(
+                getType(row),
+                globalCategoryIds[getCategoryId(row)],
+                getAmountMinor(row),
+                getDate(row));
+    }
+
+    private String getDate(int row) {
+        long millis = timestamps.get(row);
+        return millis == Timestamps.INEXACT
+                ? inexactDates.get(row)
+                : Timestamps.fromEpochMillis(millis);
+    }
+}
@@ -9,9 +9,55 @@ public interface Storage {
 
     User findUser(String username);
 
+    /**
+     * Заменяет только запись пароля (перехеширование при входе), не трогая кошелёк. Реализация по
+     * умолчанию загружает пользователя и сохраняет его целиком.
+     */
+    default void saveCredentials(String username, String password) {
+        User user = findUser(username);
+        if (user == null) return;
+        user.setPassword(password);
+        saveUser(user);
+    }
+
+    /**
+     * Только запись пароля пользователя (без загрузки кошелька) или {@code null}, если его нет.
+     * Реализация по умолчанию загружает пользователя целиком.
+     */
+    default String findCredentials(String username) {
+        User user = findUser(username);
+        return user != null ? user.getPassword() : null;
+    }
+
+    /** Есть ли такой пользователь; не читает кошелёк. */
+    default boolean exists(String username) {
+        return findCredentials(username) != null;
+    }
+
+    /** Пользователи с кошельками, загружаемыми при первом обращении (если хранилище умеет). */
     List<User> getAllUsers();
 
     void loadWallet(User user);
 
+    /**
+     * Суммы и бюджеты сохранённого кошелька для отчётов; {@code null} не возвращает. Реализация по
+     * умолчанию загружает кошелёк целиком.
+     */
+    default WalletSummary summarizeWallet(String username) {
+        User user = findUser(username);
+        return user != null ? WalletSummary.of(user.getWallet()) : new WalletSummary();
+    }
+
     void saveWallet(User user);
+
+    /** Дожидается, пока отложенные записи окажутся на диске. */
+    default void flush() {}
+
+    /**
+     * Дожидается, пока на диске окажутся кошельки {@code users}, уже переданные {@link
+     * #saveWallet}; остальные отложенные записи могут подождать. По умолчанию — {@link #flush()}.
+     */
+    default void flushWallets(List<User> users) {
+        flush();
+    }
 }
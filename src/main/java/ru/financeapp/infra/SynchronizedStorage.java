@@ -0,0 +1,221 @@
+package ru.financeapp.infra;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import ru.financeapp.core.User;
+import ru.financeapp.core.Wallet;
+
+/**
+ * Потокобезопасная обёртка: сессии сервера делят одно хранилище. Операции со справочником
+ * пользователей и загрузка кошельков идут под блокировкой записи. Запись кошелька и {@link
+ * #summarizeWallet} берут блокировку чтения и полосу своего пользователя: кошельки разных
+ * пользователей пишутся и читаются параллельно, но сводка не застаёт свой кошелёк посреди записи
+ * или сжатия лога. Нижнее хранилище должно допускать такие операции над разными пользователями
+ * одновременно.
+ *
+ * <p>Пока на пользователя есть ссылки (его сессия, перевод), {@link #findUser} отдаёт тот же
+ * экземпляр: перевод дописывает доход в кошелёк, который держит сессия получателя, а не в копию,
+ * которую её следующее сохранение перезаписало бы.
+ */
+public class SynchronizedStorage implements Storage {
+    private static final int WALLET_STRIPES = 64;
+    private final Storage delegate;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Lock write = lock.writeLock();
+    private final Lock shared = lock.readLock();
+    private final Lock[] walletLocks = new Lock[WALLET_STRIPES];
+    private final Map<String, LiveUser> live = new HashMap<>();
+    private final ReferenceQueue<User> released = new ReferenceQueue<>();
+
+    public SynchronizedStorage(Storage delegate) {
+        this.delegate = delegate;
+        for (int i = 0; i < WALLET_STRIPES; i++) {
+            walletLocks[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public void saveUser(User user) {
+        write.lock();
+        try {
+            delegate.saveUser(user);
+            remember(user);
+        } finally {
+            write.unlock();
+        }
+    }
+
+    /** Экземпляр, который держат сессии, получает новую запись пароля вместе с хранилищем. */
+    @Override
+    public void saveCredentials(String username, String password) {
+        write.lock();
+        try {
+            delegate.saveCredentials(username, password);
+            User user = live(username);
+            if (user != null) user.setPassword(password);
+        } finally {
+            write.unlock();
+        }
+    }
+
+    @Override
+    public User findUser(String username) {
+        write.lock();
+        try {
+            User user = live(username);
+            if (user != null) {
+                return user;
+            }
+            user = delegate.findUser(username);
+            if (user != null) {
+                user.guardWalletLoader(write);
+                remember(user);
+            }
+            return user;
+        } finally {
+            write.unlock();
+        }
+    }
+
+    @Override
+    public boolean exists(String username) {
+        write.lock();
+        try {
+            return delegate.exists(username);
+        } finally {
+            write.unlock();
+        }
+    }
+
+    @Override
+    public String findCredentials(String username) {
+        write.lock();
+        try {
+            return delegate.findCredentials(username);
+        } finally {
+            write.unlock();
+        }
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        write.lock();
+        try {
+            List<User> users = new ArrayList<>();
+            for (User user : delegate.getAllUsers()) {
+                User current = live(user.getUsername());
+                if (current == null) user.guardWalletLoader(write);
+                users.add(current != null ? current : user);
+            }
+            return users;
+        } finally {
+            write.unlock();
+        }
+    }
+
+    @Override
+    public void loadWallet(User user) {
+        write.lock();
+        try {
+            delegate.loadWallet(user);
+        } finally {
+            write.unlock();
+        }
+    }
+
+    /** Сводки нижнего хранилища только читают сохранённые данные и ничего не переписывают. */
+    @Override
+    public WalletSummary summarizeWallet(String username) {
+        Lock wallet = walletLock(username);
+        shared.lock();
+        wallet.lock();
+        try {
+            return delegate.summarizeWallet(username);
+        } finally {
+            wallet.unlock();
+            shared.unlock();
+        }
+    }
+
+    /**
+     * Кошелёк пишется под своим монитором: сессия, которая его правит, подождёт конца сериализации.
+     * Монитор берётся до блокировок хранилища — правки кошелька других блокировок не берут.
+     */
+    @Override
+    public void saveWallet(User user) {
+        Wallet wallet = user.getWallet();
+        if (wallet == null) {
+            wallet = new Wallet();
+            user.setWallet(wallet);
+        }
+        Lock stripe = walletLock(user.getUsername());
+        synchronized (wallet) {
+            shared.lock();
+            stripe.lock();
+            try {
+                delegate.saveWallet(user);
+            } finally {
+                stripe.unlock();
+                shared.unlock();
+            }
+        }
+    }
+
+    @Override
+    public void flush() {
+        shared.lock();
+        try {
+            delegate.flush();
+        } finally {
+            shared.unlock();
+        }
+    }
+
+    @Override
+    public void flushWallets(List<User> users) {
+        shared.lock();
+        try {
+            delegate.flushWallets(users);
+        } finally {
+            shared.unlock();
+        }
+    }
+
+    private Lock walletLock(String username) {
+        return walletLocks[Math.floorMod(username.hashCode(), WALLET_STRIPES)];
+    }
+
+    /**
+     * Экземпляр, на который ещё есть ссылки, или {@code null}; вызывается под блокировкой записи.
+     */
+    private User live(String username) {
+        for (Object ref; (ref = released.poll()) != null; ) {
+            LiveUser gone = (LiveUser) ref;
+            live.remove(gone.username, gone);
+        }
+        LiveUser ref = live.get(username);
+        return ref != null ? ref.get() : null;
+    }
+
+    private void remember(User user) {
+        live.put(user.getUsername(), new LiveUser(user, released));
+    }
+
+    private static final class LiveUser extends WeakReference<User> {
+        private final String username;
+
+        LiveUser(User user, ReferenceQueue<User> queue) {
+            super(user, queue);
+            this.username = user.getUsername();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package ru.financeapp.infra;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+import ru.financeapp.core.TransactionColumns;
+
+/** Перевод ISO-даты транзакции в epoch millis (локальное время как UTC) и обратно. */
+final class Timestamps {
+    static final long NO_DATE = TransactionColumns.NO_TIMESTAMP;
+
+    /** Дата не представима миллисекундами без потерь (точнее миллисекунд или не ISO). */
+    static final long INEXACT = Long.MIN_VALUE + 1;
+
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private Timestamps() {}
+
+    static long toEpochMillis(String date) throws IOException {
+        if (date == null) return NO_DATE;
+        try {
+            return LocalDateTime.parse(date, DateTimeFormatter.ISO_LOCAL_DATE_TIME)
+                    .toInstant(ZoneOffset.UTC)
+                    .toEpochMilli();
+        } catch (DateTimeParseException e) {
+            throw new IOException("Invalid transaction date: " + date, e);
+        }
+    }
+
+    /** Миллисекунды, если из них восстанавливается та же строка, иначе {@link #INEXACT}. */
+    static long toExactEpochMillis(String date) {
+        if (date == null) return NO_DATE;
+        long millis;
+        try {
+            millis = toEpochMillis(date);
+        } catch (IOException e) {
+            return INEXACT;
+        }
+        return date.equals(fromEpochMillis(millis)) ? millis : INEXACT;
+    }
+
+    /**
+     * Миллисекунды с точностью, какую даёт строка: полная ISO-дата — до миллисекунд, иначе начало
+     * дня по первым десяти символам, как {@code Transaction.getDay()}; без даты — {@link #NO_DATE}.
+     */
+    static long toApproximateMillis(String date) {
+        if (date == null) return NO_DATE;
+        try {
+            return toEpochMillis(date);
+        } catch (IOException e) {
+            // не полная дата-время
+        }
+        if (date.length() < 10) return NO_DATE;
+        try {
+            return LocalDate.parse(date.substring(0, 10)).toEpochDay() * MILLIS_PER_DAY;
+        } catch (DateTimeParseException e) {
+            return NO_DATE;
+        }
+    }
+
+    static String fromEpochMillis(long millis) {
+        if (millis == NO_DATE) return null;
+        return LocalDateTime.ofEpochSecond(
+                        Math.floorDiv(millis, 1000),
+                        (int) Math.floorMod(millis, 1000) * 1_000_000,
+                        ZoneOffset.UTC)
+                .format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+    }
+}
@@ -0,0 +1,168 @@
+package ru.financeapp.infra;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import ru.financeapp.core.Transaction;
+import ru.financeapp.core.TransactionColumns;
+import ru.financeapp.core.TransactionJsonAdapter;
+import ru.financeapp.core.Wallet;
+
+/**
+ * Потоковый экспорт и импорт кошелька в файл {@code {"transactions": [...], "budgets": {...}}}.
+ * Транзакции пишутся и читаются по одной через {@link JsonWriter}/{@link JsonReader}: файл целиком
+ * в памяти не держится, колоночный кошелёк при экспорте не разворачивается в объекты.
+ */
+public final class WalletArchive {
+    private static final TransactionJsonAdapter ADAPTER = new TransactionJsonAdapter();
+
+    /** Что делать с транзакциями, которые уже есть в кошельке. */
+    public enum Mode {
+        /** Заменить транзакции и бюджеты содержимым файла. */
+        REPLACE,
+        /** Дописать все транзакции из файла, бюджеты из файла перекрывают текущие. */
+        APPEND,
+        /** Как {@link #APPEND}, но пропустить транзакции, совпадающие с уже имеющимися. */
+        MERGE
+    }
+
+    /** Итог импорта: сколько транзакций добавлено, сколько пропущено как дубликаты. */
+    public static final class ImportResult {
+        private final int imported;
+        private final int skipped;
+
+        ImportResult(int imported, int skipped) {
+            this.imported = imported;
+            this.skipped = skipped;
+        }
+
+        public int getImported() {
+            return imported;
+        }
+
+        public int getSkipped() {
+            return skipped;
+        }
+
+        /** Всего прочитано транзакций из файла. */
+        public int getRows() {
+            return imported + skipped;
+        }
+    }
+
+    private WalletArchive() {}
+
+    /** Пишет кошелёк в файл атомарно; возвращает число транзакций. */
+    public static int export(Wallet wallet, Path file) throws IOException {
+        int[] rows = new int[1];
+        AtomicFiles.writeText(
+                file,
+                writer -> {
+                    JsonWriter json = new JsonWriter(writer);
+                    json.beginObject();
+                    json.name("transactions").beginArray();
+                    TransactionColumns columns = wallet.getColumns();
+                    if (columns != null) {
+                        for (int row = 0, n = columns.size(); row < n; row++) {
+                            ADAPTER.write(json, columns.toTransaction(row));
+                        }
+                        rows[0] = columns.size();
+                        rows[0] += writeAll(json, wallet.getUnmappedTransactions());
+                    } else {
+                        rows[0] = writeAll(json, wallet.getTransactions());
+                    }
+                    json.endArray();
+                    json.name("budgets").beginObject();
+                    for (Map.Entry<String, Double> e : wallet.getBudgets().entrySet()) {
+                        json.name(e.getKey()).value(e.getValue());
+                    }
+                    json.endObject();
+                    json.endObject();
+                    json.flush();
+                },
+                FileSync.immediate());
+        return rows[0];
+    }
+
+    /**
+     * Читает файл по одной транзакции и применяет к кошельку в режиме {@code mode}. Кошелёк
+     * меняется только после успешного разбора всего файла.
+     */
+    public static ImportResult importInto(Wallet wallet, Path file, Mode mode) throws IOException {
+        Set<Transaction> existing = null;
+        if (mode == Mode.MERGE) {
+            existing = new HashSet<>(wallet.size() * 2);
+            TransactionColumns columns = wallet.getColumns();
+            if (columns != null) {
+                for (int row = 0, n = columns.size(); row < n; row++) {
+                    existing.add(columns.toTransaction(row));
+                }
+                existing.addAll(wallet.getUnmappedTransactions());
+            } else {
+                existing.addAll(wallet.getTransactions());
+            }
+        }
+        List<Transaction> incoming = new ArrayList<>();
+        Map<String, Double> budgets = new HashMap<>();
+        int skipped = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+                JsonReader json = new JsonReader(reader)) {
+            json.beginObject();
+            while (json.hasNext()) {
+                String name = json.nextName();
+                if (json.peek() == JsonToken.NULL) {
+                    json.nextNull();
+                } else if ("transactions".equals(name)) {
+                    json.beginArray();
+                    while (json.hasNext()) {
+                        Transaction t = ADAPTER.read(json);
+                        if (t == null) continue;
+                        if (existing != null && !existing.add(t)) {
+                            skipped++;
+                        } else {
+                            incoming.add(t);
+                        }
+                    }
+                    json.endArray();
+                } else if ("budgets".equals(name)) {
+                    json.beginObject();
+                    while (json.hasNext()) {
+                        budgets.put(json.nextName(), json.nextDouble());
+                    }
+                    json.endObject();
+                } else {
+                    json.skipValue();
+                }
+            }
+            json.endObject();
+        }
+        if (mode == Mode.REPLACE) {
+            wallet.setTransactions(incoming);
+            wallet.setBudgets(budgets);
+        } else {
+            incoming.forEach(wallet::addTransaction);
+            budgets.forEach(wallet::setBudget);
+        }
+        return new ImportResult(incoming.size(), skipped);
+    }
+
+    private static int writeAll(JsonWriter json, List<Transaction> transactions)
+            throws IOException {
+        for (Transaction t : transactions) {
+            ADAPTER.write(json, t);
+        }
+        return transactions.size();
+    }
+}
@@ -0,0 +1,101 @@
+package ru.financeapp.infra;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import ru.financeapp.core.Transaction;
+import ru.financeapp.core.TransactionJsonAdapter;
+import ru.financeapp.core.Wallet;
+
+/**
+ * Потоковое чтение/запись файла кошелька через {@link JsonReader}/{@link JsonWriter}. Формат
+ * совпадает с тем, что раньше писал Gson: {@code {"transactions":[...],"budgets":{...}}}.
+ */
+public final class WalletCodec {
+    private static final TransactionJsonAdapter TRANSACTIONS = new TransactionJsonAdapter();
+
+    private WalletCodec() {}
+
+    public static void write(Writer writer, Wallet wallet) throws IOException {
+        JsonWriter out = new JsonWriter(writer);
+        out.beginObject();
+        out.name("transactions").beginArray();
+        for (Transaction t : wallet.getTransactions()) {
+            TRANSACTIONS.write(out, t);
+        }
+        out.endArray();
+        out.name("budgets").beginObject();
+        for (Map.Entry<String, Double> e : wallet.getBudgets().entrySet()) {
+            out.name(e.getKey()).value(e.getValue());
+        }
+        out.endObject();
+        out.endObject();
+        out.flush();
+    }
+
+    public static Wallet read(Reader reader) throws IOException {
+        List<Transaction> transactions = new ArrayList<>();
+        Map<String, Double> budgets = new HashMap<>();
+        parse(reader, transactions::add, budgets);
+        Wallet wallet = new Wallet();
+        wallet.setTransactions(transactions);
+        wallet.setBudgets(budgets);
+        return wallet;
+    }
+
+    /** Сворачивает транзакции в суммы по мере чтения, не держа весь список в памяти. */
+    public static WalletSummary summarize(Reader reader) throws IOException {
+        WalletSummary summary = new WalletSummary();
+        parse(reader, summary::addTransaction, summary.getBudgets());
+        return summary;
+    }
+
+    private static void parse(
+            Reader reader, Consumer<Transaction> onTransaction, Map<String, Double> budgets)
+            throws IOException {
+        JsonReader in = new JsonReader(reader);
+        in.setLenient(true);
+        try {
+            if (in.peek() == JsonToken.NULL) return;
+        } catch (EOFException e) {
+            return;
+        }
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "transactions" -> {
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        Transaction t = TRANSACTIONS.read(in);
+                        if (t != null) onTransaction.accept(t);
+                    }
+                    in.endArray();
+                }
+                case "budgets" -> {
+                    in.beginObject();
+                    while (in.hasNext()) {
+                        budgets.put(in.nextName(), in.nextDouble());
+                    }
+                    in.endObject();
+                }
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+    }
+}
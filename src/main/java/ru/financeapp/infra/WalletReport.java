@@ -0,0 +1,155 @@
+package ru.financeapp.infra;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import ru.financeapp.core.Money;
+import ru.financeapp.core.Transaction;
+import ru.financeapp.core.TransactionTotals;
+import ru.financeapp.core.User;
+
+/**
+ * Сводка по всем пользователям хранилища: доходы и расходы по категориям и самые крупные по
+ * расходам пользователи. Кошельки разбираются параллельно через {@link Storage#summarizeWallet}, по
+ * одному на задачу, и сразу сворачиваются в частичные суммы; сами кошельки не удерживаются, а топ
+ * ограничен {@code top} строками на частичный результат.
+ */
+public final class WalletReport {
+    private static final Comparator<Spender> BY_EXPENSES =
+            Comparator.comparingLong(Spender::getExpensesMinor)
+                    .thenComparing(Spender::getUsername, Comparator.reverseOrder());
+
+    /** Пользователь и сумма его расходов. */
+    public static final class Spender {
+        private final String username;
+        private final long expensesMinor;
+
+        Spender(String username, long expensesMinor) {
+            this.username = username;
+            this.expensesMinor = expensesMinor;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public long getExpensesMinor() {
+            return expensesMinor;
+        }
+
+        public double getExpenses() {
+            return Money.toDouble(expensesMinor);
+        }
+    }
+
+    private final TransactionTotals totals;
+    private final List<Spender> topSpenders;
+    private final int users;
+    private final int transactions;
+    private final int failed;
+
+    private WalletReport(Partial result) {
+        this.totals = result.totals;
+        this.topSpenders = new ArrayList<>(result.top);
+        this.topSpenders.sort(BY_EXPENSES.reversed());
+        this.users = result.users;
+        this.transactions = result.transactions;
+        this.failed = result.failed;
+    }
+
+    /** Сводка по всем пользователям {@code storage} с {@code top} крупнейшими по расходам. */
+    public static WalletReport build(Storage storage, int top) {
+        List<String> usernames = new ArrayList<>();
+        for (User user : storage.getAllUsers()) {
+            usernames.add(user.getUsername());
+        }
+        return build(storage, usernames, top);
+    }
+
+    static WalletReport build(Storage storage, List<String> usernames, int top) {
+        if (top < 0) {
+            throw new IllegalArgumentException("Top size must not be negative");
+        }
+        Partial result =
+                usernames.parallelStream()
+                        .collect(
+                                () -> new Partial(top),
+                                (partial, username) -> partial.add(storage, username),
+                                Partial::merge);
+        return new WalletReport(result);
+    }
+
+    public TransactionTotals getTotals() {
+        return totals;
+    }
+
+    /** Крупнейшие по расходам пользователи, по убыванию. */
+    public List<Spender> getTopSpenders() {
+        return topSpenders;
+    }
+
+    public int getUsers() {
+        return users;
+    }
+
+    public int getTransactionCount() {
+        return transactions;
+    }
+
+    /** Сколько кошельков не удалось прочитать; в суммы они не вошли. */
+    public int getFailed() {
+        return failed;
+    }
+
+    /** Частичный результат одного потока: суммы и min-куча из не более чем {@code limit} строк. */
+    private static final class Partial {
+        private final int limit;
+        private final TransactionTotals totals = new TransactionTotals();
+        private final PriorityQueue<Spender> top;
+        private int users;
+        private int transactions;
+        private int failed;
+
+        Partial(int limit) {
+            this.limit = limit;
+            this.top = new PriorityQueue<>(Math.max(1, limit + 1), BY_EXPENSES);
+        }
+
+        void add(Storage storage, String username) {
+            WalletSummary summary;
+            try {
+                summary = storage.summarizeWallet(username);
+            } catch (RuntimeException e) {
+                failed++;
+                System.err.println(
+                        "Warning: skipped wallet of " + username + ": " + e.getMessage());
+                return;
+            }
+            TransactionTotals wallet = summary.getTotals();
+            totals.addAll(wallet);
+            transactions += summary.getTransactionCount();
+            users++;
+            offer(new Spender(username, wallet.getTotalMinor(Transaction.Type.EXPENSE)));
+        }
+
+        void merge(Partial other) {
+            totals.addAll(other.totals);
+            users += other.users;
+            transactions += other.transactions;
+            failed += other.failed;
+            other.top.forEach(this::offer);
+        }
+
+        private void offer(Spender spender) {
+            if (limit == 0) return;
+            if (top.size() < limit) {
+                top.add(spender);
+            } else if (BY_EXPENSES.compare(spender, top.peek()) > 0) {
+                top.poll();
+                top.add(spender);
+            }
+        }
+    }
+}
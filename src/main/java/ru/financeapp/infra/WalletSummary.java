@@ -0,0 +1,49 @@
+package ru.financeapp.infra;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import ru.financeapp.core.Transaction;
+import ru.financeapp.core.TransactionTotals;
+import ru.financeapp.core.Wallet;
+
+/** Бюджеты и суммы кошелька без самого списка транзакций. */
+public class WalletSummary {
+    private final Map<String, Double> budgets = new HashMap<>();
+    private final TransactionTotals totals;
+    private int transactionCount;
+
+    public WalletSummary() {
+        this(new TransactionTotals(), 0);
+    }
+
+    WalletSummary(TransactionTotals totals, int transactionCount) {
+        this.totals = totals;
+        this.transactionCount = transactionCount;
+    }
+
+    static WalletSummary of(Wallet wallet) {
+        TransactionTotals totals = new TransactionTotals();
+        totals.addAll(wallet.getTotals());
+        WalletSummary summary = new WalletSummary(totals, wallet.size());
+        summary.budgets.putAll(wallet.getBudgets());
+        return summary;
+    }
+
+    public void addTransaction(Transaction t) {
+        totals.add(t);
+        transactionCount++;
+    }
+
+    public Map<String, Double> getBudgets() {
+        return budgets;
+    }
+
+    public TransactionTotals getTotals() {
+        return totals;
+    }
+
+    public int getTransactionCount() {
+        return transactionCount;
+    }
+}
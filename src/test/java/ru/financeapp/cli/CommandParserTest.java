@@ -34,4 +34,43 @@ class CommandParserTest {
         assertEquals(3, cmd.args.size());
         assertEquals("categories", cmd.args.get(0));
     }
+
+    @Test
+    void tokenizer_ExtraWhitespace_SplitsOnce() {
+        CommandParser.Tokenizer t =
+                new CommandParser.Tokenizer().reset("  ADD\texpense  food   12.5 ");
+        assertEquals(CommandParser.Action.ADD, t.action());
+        assertEquals(3, t.argCount());
+        assertTrue(t.argIs(0, "expense"));
+        assertEquals("food", t.argString(1));
+        assertEquals(12.5, t.argAmount(2));
+    }
+
+    @Test
+    void tokenizer_Reused_ReflectsLatestLine() {
+        CommandParser.Tokenizer t = new CommandParser.Tokenizer();
+        t.reset("transfer bob 10");
+        t.reset("frobnicate");
+        assertEquals(CommandParser.Action.UNKNOWN, t.action());
+        assertEquals("frobnicate", t.actionName());
+        assertEquals(0, t.argCount());
+    }
+
+    @Test
+    void argAmount_RoundsToMinorUnits() {
+        CommandParser.Tokenizer t = new CommandParser.Tokenizer().reset("x 0.1 7 1.005 -3 5.");
+        assertEquals(0.1, t.argAmount(0));
+        assertEquals(7.0, t.argAmount(1));
+        assertEquals(1.01, t.argAmount(2));
+        assertEquals(-3.0, t.argAmount(3));
+        assertEquals(5.0, t.argAmount(4));
+    }
+
+    @Test
+    void argAmount_NotANumber_Throws() {
+        CommandParser.Tokenizer t = new CommandParser.Tokenizer().reset("x 12a . 1.2.3");
+        assertThrows(InvalidInputException.class, () -> t.argAmount(0));
+        assertThrows(InvalidInputException.class, () -> t.argAmount(1));
+        assertThrows(InvalidInputException.class, () -> t.argAmount(2));
+    }
 }
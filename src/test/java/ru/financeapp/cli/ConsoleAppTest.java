@@ -5,13 +5,18 @@ import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
 import java.util.*;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
@@ -122,6 +127,36 @@ class ConsoleAppTest {
         assertTrue(output.contains("8300.0"));
     }
 
+    @Test
+    void handleStats_DateRange_UsesPeriodTotals() {
+        when(userService.isLoggedIn()).thenReturn(true);
+        when(userService.getCurrentUser()).thenReturn(mockUser);
+        when(mockUser.getWallet()).thenReturn(mockWallet);
+        when(mockWallet.getBudget(anyString())).thenReturn(0.0);
+        LocalDate from = LocalDate.of(2026, 1, 1);
+        LocalDate to = LocalDate.of(2026, 3, 31);
+        when(financeService.getTotalIncome(from, to)).thenReturn(1500.0);
+        when(financeService.getTotalExpenses(from, to)).thenReturn(700.0);
+        when(financeService.getIncomeByCategories(anyList(), eq(from), eq(to)))
+                .thenReturn(Map.of("salary", 1500.0));
+        when(financeService.getExpensesByCategories(anyList(), eq(from), eq(to)))
+                .thenReturn(Map.of("food", 700.0));
+
+        app.handleCommand(new CommandParser.Command("stats from 2026-01-01 to 2026-03-31"));
+
+        String output = outContent.toString();
+        assertTrue(output.contains("1500.0"));
+        assertTrue(output.contains("700.0"));
+        verify(financeService, never()).getTotalIncome();
+    }
+
+    @Test
+    void handleStats_BadDate_PrintsUsage() {
+        when(userService.isLoggedIn()).thenReturn(true);
+        app.handleCommand(new CommandParser.Command("stats from 2026-13-01 to 2026-03-31"));
+        assertTrue(outContent.toString().contains("expected yyyy-mm-dd"));
+    }
+
     @Test
     void handleExport_Valid_PrintsExported() {
         when(userService.isLoggedIn()).thenReturn(true);
@@ -154,24 +189,88 @@ class ConsoleAppTest {
         assertTrue(output.contains("Type 'help' for usage."));
     }
 
+    @Test
+    void handleBatch_File_RunsLinesAndReportsErrors(@TempDir Path dir) throws IOException {
+        when(userService.isLoggedIn()).thenReturn(true);
+        Path file = dir.resolve("commands.txt");
+        Files.writeString(
+                file,
+                "# bulk load\n"
+                        + "add income salary 1000\n"
+                        + "add expense food abc\n"
+                        + "\n"
+                        + "add expense food 250\n");
+
+        app.handleCommand(new CommandParser.Command("batch " + file));
+
+        String output = outContent.toString();
+        verify(financeService).beginBatch();
+        verify(financeService).addIncome("salary", 1000.0);
+        verify(financeService).addExpense("food", 250.0);
+        verify(financeService).endBatch();
+        assertTrue(output.contains("Line 3: "));
+        assertTrue(output.contains("Batch done: 2 ok, 1 failed"));
+    }
+
     @Test
     void exit_SetsRunningFalse_PrintsGoodbye() {
         app.exit();
+        app.out.flush();
         assertFalse(app.running);
         assertTrue(outContent.toString().contains("Goodbye!"));
     }
 
     @Test
-    void saveAll_CallsSaveOnAllUsers() {
-        List<User> mockUsers = Arrays.asList(mock(User.class), mock(User.class));
-        when(storage.getAllUsers()).thenReturn(mockUsers);
+    void saveAll_SavesOnlyDirtyCurrentWallet() {
+        when(userService.isLoggedIn()).thenReturn(true);
+        when(userService.getCurrentUser()).thenReturn(mockUser);
+        when(mockUser.isWalletLoaded()).thenReturn(true);
+        when(mockUser.getWallet()).thenReturn(mockWallet);
+        when(mockWallet.isDirty()).thenReturn(true);
         app.saveAll();
-        verify(storage, times(2)).saveWallet(any(User.class));
+        verify(storage).saveWallet(mockUser);
+        verify(storage).flush();
+        verify(storage, never()).getAllUsers();
+    }
+
+    @Test
+    void saveAll_CleanWallet_SkipsWrite() {
+        when(userService.isLoggedIn()).thenReturn(true);
+        when(userService.getCurrentUser()).thenReturn(mockUser);
+        when(mockUser.getWallet()).thenReturn(mockWallet);
+        when(mockWallet.isDirty()).thenReturn(false);
+        app.saveAll();
+        verify(storage, never()).saveWallet(any());
+        verify(storage).flush();
+    }
+
+    @Test
+    void saveAll_WalletNotLoaded_SkipsWrite() {
+        when(userService.isLoggedIn()).thenReturn(true);
+        when(userService.getCurrentUser()).thenReturn(mockUser);
+        when(mockUser.isWalletLoaded()).thenReturn(false);
+        app.saveAll();
+        verify(mockUser, never()).getWallet();
+        verify(storage, never()).saveWallet(any());
+    }
+
+    @Test
+    void handleLogout_SavesDirtyWallet() {
+        when(userService.isLoggedIn()).thenReturn(true);
+        when(userService.getCurrentUser()).thenReturn(mockUser);
+        when(mockUser.isWalletLoaded()).thenReturn(true);
+        when(mockUser.getWallet()).thenReturn(mockWallet);
+        when(mockWallet.isDirty()).thenReturn(true);
+        app.handleCommand(new CommandParser.Command("logout"));
+        verify(storage).saveWallet(mockUser);
+        verify(userService).logout();
     }
 
     @Test
     void printHelp_PrintsCommandsAndExamples() {
         app.printHelp();
+        assertEquals("", outContent.toString());
+        app.out.flush();
         String output = outContent.toString();
         assertTrue(output.contains("Commands: register/login"));
         assertTrue(output.contains("Examples: 'add expense food 1000'"));
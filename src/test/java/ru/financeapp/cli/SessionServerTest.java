@@ -0,0 +1,139 @@
+package ru.financeapp.cli;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+import ru.financeapp.infra.FileJsonStorage;
+import ru.financeapp.infra.Storage;
+import ru.financeapp.infra.SynchronizedStorage;
+
+@Timeout(20)
+class SessionServerTest {
+    @TempDir Path tempDir;
+    private Storage storage;
+    private SessionServer server;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Path usersPath = tempDir.resolve("users.json");
+        storage =
+                new SynchronizedStorage(
+                        new FileJsonStorage(tempDir.resolve("wallets").toString() + "/") {
+                            @Override
+                            protected Path getUsersFilePath() {
+                                return usersPath;
+                            }
+                        });
+        server = new SessionServer(0, storage);
+        Thread acceptor = new Thread(server::serve);
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.close();
+    }
+
+    @Test
+    void serve_TwoConnections_HaveSeparateSessions() throws IOException {
+        try (Socket alice = connect();
+                Socket bob = connect()) {
+            send(alice, "register alice pw\nlogin alice pw\n");
+            String bobOutput = converse(bob, "add income salary 10\nexit\n");
+            String aliceOutput = converse(alice, "add income salary 100\nexit\n");
+
+            assertTrue(bobOutput.contains("Login first"));
+            assertTrue(aliceOutput.contains("Logged in as alice"));
+            assertTrue(aliceOutput.contains("Added income successfully!"));
+        }
+        assertEquals(1, storage.findUser("alice").getWallet().getTransactions().size());
+    }
+
+    @Test
+    void serve_SessionEnds_StopsItsNotificationThread() throws Exception {
+        Set<Thread> before = notificationThreads();
+        String output;
+        try (Socket client = connect()) {
+            output =
+                    converse(
+                            client,
+                            "register carol pw\nlogin carol pw\n"
+                                    + "add income salary 10\nadd expense food 10\nexit\n");
+        }
+        assertTrue(output.contains("Balance is zero"));
+
+        // без закрытия поток шины простоял бы ещё NotificationBus.IDLE_MILLIS
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(500);
+        Set<Thread> started = notificationThreads();
+        started.removeAll(before);
+        while (!started.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            started.removeIf(t -> !t.isAlive());
+        }
+        assertEquals(Set.of(), started);
+    }
+
+    @Test
+    void serve_FileCommands_AreRejected() throws IOException {
+        Path secret = tempDir.resolve("secret.txt");
+        Files.writeString(secret, "register mallory pw\n");
+        Path exported = tempDir.resolve("out.json");
+        String output;
+        try (Socket client = connect()) {
+            output =
+                    converse(
+                            client,
+                            "register eve pw\nlogin eve pw\n"
+                                    + ("export " + exported + "\n")
+                                    + ("import " + secret + "\n")
+                                    + ("batch " + secret + "\n")
+                                    + "exit\n");
+        }
+
+        assertTrue(output.contains("'export' is only available locally"));
+        assertTrue(output.contains("'import' is only available locally"));
+        assertTrue(output.contains("'batch' is only available locally"));
+        assertFalse(Files.exists(exported));
+        assertFalse(storage.exists("mallory"));
+    }
+
+    private Socket connect() throws IOException {
+        return new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+    }
+
+    private void send(Socket socket, String commands) throws IOException {
+        OutputStream out = socket.getOutputStream();
+        out.write(commands.getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private String converse(Socket socket, String commands) throws IOException {
+        send(socket, commands);
+        socket.shutdownOutput();
+        return new String(socket.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    private static Set<Thread> notificationThreads() {
+        Set<Thread> threads = new HashSet<>();
+        for (Thread t : Thread.getAllStackTraces().keySet()) {
+            if (t.getName().equals("notifications") && t.isAlive()) threads.add(t);
+        }
+        return threads;
+    }
+}
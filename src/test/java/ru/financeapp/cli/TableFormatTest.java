@@ -0,0 +1,49 @@
+package ru.financeapp.cli;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Locale;
+
+import org.junit.jupiter.api.Test;
+
+class TableFormatTest {
+
+    @Test
+    void row_MatchesPrintfLayout() {
+        TableFormat row = new TableFormat(8, 6, 7, 6, 9);
+        String expected =
+                String.format(
+                        Locale.US,
+                        "| %-8s | %-6.1f | %-7.1f | %-6s | %-9s |",
+                        "food",
+                        1234.45,
+                        0.05,
+                        "N/A",
+                        "N/A");
+
+        String actual =
+                row.begin()
+                        .cell("food")
+                        .cell(1234.45)
+                        .cell(0.05)
+                        .cell("N/A")
+                        .cell("N/A")
+                        .end()
+                        .toString();
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void formatAmount_RoundsLikePrintf() {
+        for (double value : new double[] {0, 0.25, -0.25, 1.15, 99.95, -1200.5, 123456.78}) {
+            assertEquals(String.format(Locale.US, "%.1f", value), TableFormat.formatAmount(value));
+        }
+    }
+
+    @Test
+    void cell_LongerThanWidth_IsNotTruncated() {
+        TableFormat row = new TableFormat(3);
+        assertEquals("| transport |", row.begin().cell("transport").end().toString());
+    }
+}
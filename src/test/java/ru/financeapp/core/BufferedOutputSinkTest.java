@@ -0,0 +1,35 @@
+package ru.financeapp.core;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import org.junit.jupiter.api.Test;
+
+class BufferedOutputSinkTest {
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final PrintStream target = new PrintStream(bytes);
+
+    @Test
+    void println_HeldUntilFlush() {
+        BufferedOutputSink sink = new BufferedOutputSink(target);
+        sink.println("one");
+        sink.print("> ");
+        assertEquals("", bytes.toString());
+
+        sink.flush();
+
+        assertEquals("one" + System.lineSeparator() + "> ", bytes.toString());
+    }
+
+    @Test
+    void println_OverLimit_FlushesEarly() {
+        BufferedOutputSink sink = new BufferedOutputSink(target, 8);
+        sink.println("short");
+        assertEquals("", bytes.toString());
+        sink.println("longer line");
+        assertTrue(bytes.toString().startsWith("short"));
+        assertTrue(bytes.toString().contains("longer line"));
+    }
+}
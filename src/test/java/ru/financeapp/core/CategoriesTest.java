@@ -0,0 +1,58 @@
+package ru.financeapp.core;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+class CategoriesTest {
+    /** Словарь общий для процесса: у каждого теста свои имена, порядок тестов не важен. */
+    private static String unique(String prefix) {
+        return prefix + "-" + UUID.randomUUID();
+    }
+
+    @Test
+    void intern_SameName_ReturnsSameId() {
+        String name = unique("food");
+        int id = Categories.intern(name);
+        assertEquals(id, Categories.intern(new String(name)));
+        assertEquals(name, Categories.name(id));
+        assertEquals(id, Categories.find(name));
+    }
+
+    @Test
+    void find_UnknownName_DoesNotRegister() {
+        String name = unique("unknown");
+        int count = Categories.count();
+        assertEquals(-1, Categories.find(name));
+        assertEquals(count, Categories.count());
+    }
+
+    @Test
+    void transactions_SameCategory_ShareInternedId() {
+        String name = unique("rent");
+        Transaction t1 = new Transaction(Transaction.Type.EXPENSE, new String(name), 10);
+        Transaction t2 = new Transaction(Transaction.Type.INCOME, new String(name), 20);
+        assertEquals(t1.getCategoryId(), t2.getCategoryId());
+        assertEquals(name, t2.getCategory());
+    }
+
+    @Test
+    void totals_HighCategoryId_SumsOnlyUsedCategories() {
+        for (int i = 0; i < 100; i++) {
+            Categories.intern(unique("filler"));
+        }
+        String name = unique("late");
+        TransactionTotals day = new TransactionTotals();
+        day.addMinor(Transaction.Type.EXPENSE, Categories.intern(name), 250);
+        TransactionTotals sum = new TransactionTotals();
+        sum.addAll(day);
+        sum.addAll(day);
+
+        assertEquals(500, sum.getCategoryTotalMinor(Transaction.Type.EXPENSE, name));
+        assertEquals(1, sum.getByCategory(Transaction.Type.EXPENSE).size());
+        assertTrue(sum.getByCategory(Transaction.Type.INCOME).isEmpty());
+        assertEquals(0, new TransactionTotals().getTotalMinor(Transaction.Type.INCOME));
+    }
+}
@@ -4,6 +4,8 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -33,9 +35,19 @@ class FinanceServiceTest {
         when(mockStorage.findUser(anyString())).thenReturn(mockToUser);
         when(mockToUser.getWallet()).thenReturn(mockToWallet);
         when(mockWallet.getBudgets()).thenReturn(new HashMap<>());
+        when(mockWallet.getTotals()).thenReturn(new TransactionTotals());
         service = new FinanceService(userService);
     }
 
+    private Wallet useWallet(Transaction... transactions) {
+        Wallet wallet = new Wallet();
+        for (Transaction t : transactions) {
+            wallet.addTransaction(t);
+        }
+        when(mockUser.getWallet()).thenReturn(wallet);
+        return wallet;
+    }
+
     @Test
     void addIncome_Valid_AddsTransaction() {
         assertDoesNotThrow(() -> service.addIncome("salary", 50000.0));
@@ -63,6 +75,13 @@ class FinanceServiceTest {
         assertThrows(InvalidInputException.class, () -> service.addExpense("food", -1000.0));
     }
 
+    @Test
+    void addExpense_RoundsToZero_Throws() {
+        assertThrows(InvalidInputException.class, () -> service.addExpense("food", 0.004));
+        assertThrows(InvalidInputException.class, () -> service.transfer("to", 0.004));
+        verify(mockWallet, never()).addTransaction(any(Transaction.class));
+    }
+
     @Test
     void setBudget_Valid_SetsBudget() {
         assertDoesNotThrow(() -> service.setBudget("food", 4000.0));
@@ -78,13 +97,13 @@ class FinanceServiceTest {
     void getTotalIncome_WithData_ReturnsSum() {
         Transaction t1 = new Transaction(Transaction.Type.INCOME, "salary", 50000);
         Transaction t2 = new Transaction(Transaction.Type.INCOME, "bonus", 10000);
-        when(mockWallet.getTransactions()).thenReturn(List.of(t1, t2));
+        useWallet(t1, t2);
         assertEquals(60000.0, service.getTotalIncome(), 0.01);
     }
 
     @Test
     void getTotalIncome_NoTransactions_ReturnsZero() {
-        when(mockWallet.getTransactions()).thenReturn(List.of());
+        useWallet();
         assertEquals(0.0, service.getTotalIncome(), 0.01);
     }
 
@@ -92,7 +111,7 @@ class FinanceServiceTest {
     void getTotalExpenses_WithData_ReturnsSum() {
         Transaction t1 = new Transaction(Transaction.Type.EXPENSE, "food", 1000);
         Transaction t2 = new Transaction(Transaction.Type.EXPENSE, "transport", 500);
-        when(mockWallet.getTransactions()).thenReturn(List.of(t1, t2));
+        useWallet(t1, t2);
         assertEquals(1500.0, service.getTotalExpenses(), 0.01);
     }
 
@@ -100,7 +119,7 @@ class FinanceServiceTest {
     void getExpensesByCategories_Filtered_ReturnsFiltered() {
         Transaction t1 = new Transaction(Transaction.Type.EXPENSE, "food", 1000);
         Transaction t2 = new Transaction(Transaction.Type.EXPENSE, "transport", 500);
-        when(mockWallet.getTransactions()).thenReturn(List.of(t1, t2));
+        useWallet(t1, t2);
         Map<String, Double> result = service.getExpensesByCategories(List.of("food"));
         assertEquals(1, result.size());
         assertEquals(1000.0, result.get("food"), 0.01);
@@ -108,27 +127,155 @@ class FinanceServiceTest {
 
     @Test
     void getExpensesByCategories_NotFound_Warns() {
-        when(mockWallet.getTransactions()).thenReturn(List.of());
+        useWallet();
         Map<String, Double> result = service.getExpensesByCategories(List.of("unknown"));
         assertTrue(result.isEmpty());
     }
 
     @Test
     void getBudgetRemaining_WithSpend_ReturnsRemaining() {
-        when(mockWallet.getBudget("food")).thenReturn(4000.0);
         Transaction t = new Transaction(Transaction.Type.EXPENSE, "food", 800);
-        when(mockWallet.getTransactions()).thenReturn(List.of(t));
+        useWallet(t).setBudget("food", 4000.0);
         assertEquals(3200.0, service.getBudgetRemaining("food"), 0.01);
     }
 
     @Test
     void isBudgetExceeded_Exceeded_ReturnsTrue() {
-        when(mockWallet.getBudget("food")).thenReturn(1000.0);
         Transaction t = new Transaction(Transaction.Type.EXPENSE, "food", 1500);
-        when(mockWallet.getTransactions()).thenReturn(List.of(t));
+        useWallet(t).setBudget("food", 1000.0);
         assertTrue(service.isBudgetExceeded("food"));
     }
 
+    @Test
+    void addExpense_RealWallet_UpdatesTotalsIncrementally() {
+        Wallet wallet = useWallet(new Transaction(Transaction.Type.INCOME, "salary", 5000));
+        service.addExpense("food", 1200.0);
+        service.addExpense("food", 300.0);
+        assertEquals(1500.0, service.getTotalExpenses(), 0.01);
+        assertEquals(1500.0, wallet.getTotals().getCategoryTotal(Transaction.Type.EXPENSE, "food"));
+    }
+
+    @Test
+    void addExpense_DecimalAmounts_SumExactly() {
+        useWallet(new Transaction(Transaction.Type.INCOME, "salary", 0.3)).setBudget("food", 0.3);
+        service.addExpense("food", 0.1);
+        service.addExpense("food", 0.2);
+        assertEquals(0.3, service.getTotalExpenses());
+        assertEquals(0.0, service.getBudgetRemaining("food"));
+        assertEquals(service.getTotalIncome(), service.getTotalExpenses());
+    }
+
+    @Test
+    void getTotalIncome_AfterSetTransactions_RebuildsTotals() {
+        Wallet wallet = useWallet(new Transaction(Transaction.Type.INCOME, "salary", 5000));
+        assertEquals(5000.0, service.getTotalIncome(), 0.01);
+        wallet.setTransactions(
+                new ArrayList<>(List.of(new Transaction(Transaction.Type.INCOME, "bonus", 700))));
+        assertEquals(700.0, service.getTotalIncome(), 0.01);
+    }
+
+    @Test
+    void getTotalsBetween_DateRange_SumsOnlyDaysInside() {
+        Wallet wallet =
+                useWallet(
+                        new Transaction(
+                                Transaction.Type.EXPENSE, "food", 100, "2026-01-31T23:59:59"),
+                        new Transaction(
+                                Transaction.Type.EXPENSE, "food", 200, "2026-02-01T00:00:00"),
+                        new Transaction(
+                                Transaction.Type.INCOME, "salary", 5000, "2026-03-31T12:00:00"),
+                        new Transaction(
+                                Transaction.Type.EXPENSE, "rent", 900, "2026-04-01T08:00:00"));
+        LocalDate from = LocalDate.of(2026, 2, 1);
+        LocalDate to = LocalDate.of(2026, 3, 31);
+
+        assertEquals(200.0, service.getTotalExpenses(from, to), 0.01);
+        assertEquals(5000.0, service.getTotalIncome(from, to), 0.01);
+        wallet.addTransaction(
+                new Transaction(Transaction.Type.EXPENSE, "rent", 50, "2026-03-15T10:00:00"));
+        assertEquals(
+                Map.of("food", 200.0, "rent", 50.0),
+                service.getExpensesByCategories(List.of(), from, to));
+        assertEquals(5, wallet.getDailyTotals().getDayCount());
+    }
+
+    @Test
+    void getTotalsBetween_MalformedDates_AreSkipped() {
+        Wallet wallet =
+                useWallet(
+                        new Transaction(Transaction.Type.EXPENSE, "food", 100, "2026-1-5"),
+                        new Transaction(Transaction.Type.EXPENSE, "food", 200, "yesterday!"),
+                        new Transaction(
+                                Transaction.Type.EXPENSE, "food", 300, "2026-02-01T00:00:00"));
+        assertEquals(
+                300.0,
+                service.getTotalExpenses(LocalDate.of(2026, 1, 1), LocalDate.of(2026, 12, 31)),
+                0.01);
+        assertEquals(600.0, service.getTotalExpenses(), 0.01);
+        assertEquals(1, wallet.getDailyTotals().getDayCount());
+    }
+
+    @Test
+    void getTotalsBetween_FromAfterTo_Throws() {
+        useWallet();
+        assertThrows(
+                InvalidInputException.class,
+                () -> service.getTotalsBetween(LocalDate.of(2026, 3, 1), LocalDate.of(2026, 1, 1)));
+    }
+
+    @Test
+    void transfer_InBatch_SavesBothWalletsImmediately() {
+        useWallet(new Transaction(Transaction.Type.INCOME, "salary", 5000));
+        service.beginBatch();
+        service.transfer("to", 100.0);
+
+        verify(mockStorage, times(1)).saveWallet(mockToUser);
+        verify(mockStorage, times(1)).saveWallet(mockUser);
+        verify(mockToWallet, times(1)).addTransaction(any(Transaction.class));
+        assertEquals(100.0, service.getTotalExpenses(), 0.01);
+
+        service.endBatch();
+        verify(mockStorage, times(1)).saveWallet(mockToUser);
+    }
+
+    @Test
+    void transfer_InBatch_ToSelf_ThrowsWithoutLoadingCopy() {
+        useWallet(new Transaction(Transaction.Type.INCOME, "salary", 5000));
+        when(mockUser.getUsername()).thenReturn("me");
+        service.beginBatch();
+
+        assertThrows(InvalidInputException.class, () -> service.transfer("me", 100.0));
+
+        verify(mockStorage, never()).findUser(anyString());
+        assertEquals(0.0, service.getTotalExpenses(), 0.01);
+    }
+
+    @Test
+    void transfer_InBatch_DefersAlertsToEndBatch() {
+        MemoryNotificationSink sink = new MemoryNotificationSink();
+        FinanceService notifying =
+                new FinanceService(
+                        userService,
+                        OutputSink.direct(System.out),
+                        new TransferEngine(mockStorage),
+                        new NotificationBus(NotificationRule.defaults(), List.of(sink)));
+        useWallet(new Transaction(Transaction.Type.INCOME, "salary", 100.0))
+                .setBudget("Transfer", 50.0);
+        notifying.beginBatch();
+
+        notifying.transfer("to", 80.0);
+        notifying.awaitNotifications();
+        assertEquals(List.of(), sink.getMessages());
+
+        notifying.endBatch();
+        notifying.awaitNotifications();
+        assertEquals(
+                List.of(
+                        "Warning: 80% of budget for 'Transfer' used!",
+                        "Alert: Budget exceeded for 'Transfer'!"),
+                sink.getMessages());
+    }
+
     @Test
     void transfer_Valid_Executes() {
         when(mockStorage.findUser(eq("to"))).thenReturn(mockToUser);
@@ -137,5 +284,57 @@ class FinanceServiceTest {
         verify(mockWallet).addTransaction(any(Transaction.class));
         verify(mockToWallet).addTransaction(any(Transaction.class));
         verify(mockStorage).saveWallet(eq(mockToUser));
+        verify(mockStorage).saveWallet(eq(mockUser));
+    }
+
+    @Test
+    void addExpense_PublishesAlertsToBus() {
+        MemoryNotificationSink sink = new MemoryNotificationSink();
+        FinanceService notifying =
+                new FinanceService(
+                        userService,
+                        OutputSink.direct(System.out),
+                        new TransferEngine(mockStorage),
+                        new NotificationBus(NotificationRule.defaults(), List.of(sink)));
+        useWallet(new Transaction(Transaction.Type.INCOME, "salary", 100.0))
+                .setBudget("food", 50.0);
+
+        notifying.addExpense("food", 45.0);
+        notifying.addExpense("food", 55.0);
+        notifying.awaitNotifications();
+
+        assertEquals(
+                List.of(
+                        "Warning: 80% of budget for 'food' used!",
+                        "Warning: 80% of budget for 'food' used!",
+                        "Alert: Budget exceeded for 'food'!",
+                        "Warning: Balance is zero!"),
+                sink.getMessages());
+    }
+
+    @Test
+    void endBatch_PublishesOncePerCategory() {
+        MemoryNotificationSink sink = new MemoryNotificationSink();
+        FinanceService notifying =
+                new FinanceService(
+                        userService,
+                        OutputSink.direct(System.out),
+                        new TransferEngine(mockStorage),
+                        new NotificationBus(NotificationRule.defaults(), List.of(sink)));
+        useWallet().setBudget("food", 10.0);
+
+        notifying.beginBatch();
+        notifying.addExpense("food", 6.0);
+        notifying.addExpense("food", 6.0);
+        notifying.awaitNotifications();
+        assertTrue(sink.getMessages().isEmpty());
+        notifying.endBatch();
+        notifying.awaitNotifications();
+
+        assertEquals(
+                List.of(
+                        "Warning: 80% of budget for 'food' used!",
+                        "Alert: Budget exceeded for 'food'!", "Alert: Expenses exceed income!"),
+                sink.getMessages());
     }
 }
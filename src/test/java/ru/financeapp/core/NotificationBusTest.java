@@ -0,0 +1,102 @@
+package ru.financeapp.core;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class NotificationBusTest {
+    private final MemoryNotificationSink sink = new MemoryNotificationSink();
+
+    @Test
+    void publish_BudgetRule_UsesSnapshotTotals() {
+        NotificationBus bus = new NotificationBus(NotificationRule.defaults(), List.of(sink));
+
+        bus.publish(WalletEvent.expense("alice", "food", 1000, 10000));
+        bus.publish(WalletEvent.expense("alice", "food", 8100, 10000));
+        bus.publish(WalletEvent.expense("alice", "food", 10100, 10000));
+        bus.awaitIdle();
+
+        assertEquals(
+                List.of(
+                        "Warning: 80% of budget for 'food' used!",
+                        "Warning: 80% of budget for 'food' used!",
+                        "Alert: Budget exceeded for 'food'!"),
+                sink.getMessages());
+        assertEquals("alice", sink.getNotifications().get(0).getUsername());
+        assertEquals("budget", sink.getNotifications().get(0).getRule());
+    }
+
+    @Test
+    void publish_BalanceRule_ZeroAndNegative() {
+        NotificationBus bus = new NotificationBus(NotificationRule.defaults(), List.of(sink));
+
+        bus.publish(WalletEvent.balance("bob", 500, 500));
+        bus.publish(WalletEvent.balance("bob", 500, 700));
+        bus.publish(WalletEvent.balance("bob", 900, 700));
+        bus.awaitIdle();
+
+        assertEquals(
+                List.of("Warning: Balance is zero!", "Alert: Expenses exceed income!"),
+                sink.getMessages());
+    }
+
+    @Test
+    void publish_QueueFull_BlocksUntilDeliveredInOrder() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        NotificationSink slow =
+                n -> {
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    sink.accept(n);
+                };
+        NotificationBus bus =
+                new NotificationBus(List.of(NotificationRule.balance()), List.of(slow), 1);
+        Thread publisher =
+                new Thread(
+                        () -> {
+                            for (int i = 0; i < 5; i++) {
+                                bus.publish(WalletEvent.balance("carol", i, i));
+                            }
+                        });
+        publisher.start();
+        publisher.join(200);
+        assertTrue(publisher.isAlive(), "publisher should wait for queue space");
+
+        release.countDown();
+        publisher.join(5000);
+        bus.awaitIdle();
+
+        assertEquals(5, sink.getMessages().size());
+    }
+
+    @Test
+    void close_DeliversPendingThenDispatchesInline() {
+        NotificationBus bus = new NotificationBus(NotificationRule.defaults(), List.of(sink));
+        bus.publish(WalletEvent.balance("dave", 0, 0));
+        bus.close();
+        assertEquals(1, sink.getMessages().size());
+
+        bus.publish(WalletEvent.balance("dave", 0, 1));
+        assertEquals(2, sink.getMessages().size());
+    }
+
+    @Test
+    void publish_FailingSink_DoesNotStopOthers() {
+        NotificationSink failing =
+                n -> {
+                    throw new IllegalStateException("boom");
+                };
+        NotificationBus bus =
+                new NotificationBus(NotificationRule.defaults(), List.of(failing, sink));
+        bus.publish(WalletEvent.balance("erin", 0, 0));
+        bus.awaitIdle();
+        assertEquals(List.of("Warning: Balance is zero!"), sink.getMessages());
+    }
+}
@@ -0,0 +1,56 @@
+package ru.financeapp.core;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class PasswordHasherTest {
+    private final PasswordHasher hasher = new PasswordHasher(1000);
+
+    @Test
+    void hash_SaltedAndVerifiable() {
+        String first = hasher.hash("secret");
+        String second = hasher.hash("secret");
+
+        assertNotEquals(first, second);
+        assertTrue(first.startsWith("pbkdf2$1000$"));
+        assertTrue(hasher.verify("secret", first));
+        assertTrue(hasher.verify("secret", second));
+        assertFalse(hasher.verify("Secret", first));
+    }
+
+    @Test
+    void verify_RecordWithOtherIterations_StillWorksButNeedsRehash() {
+        String old = new PasswordHasher(500).hash("secret");
+
+        assertTrue(hasher.verify("secret", old));
+        assertTrue(hasher.needsRehash(old));
+        assertFalse(hasher.needsRehash(hasher.hash("secret")));
+    }
+
+    @Test
+    void verify_LegacyPlaintextAndMalformed() {
+        assertTrue(hasher.verify("pass", "pass"));
+        assertFalse(hasher.verify("pass", "pas"));
+        assertTrue(hasher.needsRehash("pass"));
+        assertFalse(hasher.verify("pass", "pbkdf2$x$y"));
+        assertFalse(hasher.verify("pass", "pbkdf2$1000$!!$!!"));
+    }
+
+    @Test
+    void verify_NonPositiveRounds_RejectedAsMalformed() {
+        String[] parts = hasher.hash("secret").split("\\$");
+
+        assertFalse(hasher.verify("secret", "pbkdf2$0$" + parts[2] + "$" + parts[3]));
+        assertFalse(hasher.verify("secret", "pbkdf2$-5$" + parts[2] + "$" + parts[3]));
+    }
+
+    @Test
+    void verify_CachedSuccess_DoesNotAcceptOtherPassword() {
+        String stored = hasher.hash("secret");
+        assertTrue(hasher.verify("secret", stored));
+
+        assertTrue(hasher.verify("secret", stored));
+        assertFalse(hasher.verify("wrong", stored));
+    }
+}
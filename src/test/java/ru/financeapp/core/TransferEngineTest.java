@@ -0,0 +1,293 @@
+package ru.financeapp.core;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.financeapp.exceptions.InvalidInputException;
+import ru.financeapp.exceptions.UserNotFoundException;
+import ru.financeapp.infra.Storage;
+import ru.financeapp.infra.SynchronizedStorage;
+
+class TransferEngineTest {
+    @TempDir Path tempDir;
+
+    @Test
+    void transfer_SavesBothWallets() {
+        MemoryStorage storage = new MemoryStorage("alice", "bob");
+        TransferEngine engine = new TransferEngine(storage, tempDir);
+
+        engine.transfer(storage.findUser("alice"), "bob", 250.0);
+
+        assertEquals(250.0, balance(storage.saved.get("bob")), 0.001);
+        assertEquals(-250.0, balance(storage.saved.get("alice")), 0.001);
+        assertEquals(0, journalSize());
+    }
+
+    @Test
+    void transfer_SenderSaveFails_RollsBackBothWallets() {
+        MemoryStorage storage = new MemoryStorage("alice", "bob");
+        storage.failingUser = "alice";
+        TransferEngine engine = new TransferEngine(storage, tempDir);
+        User alice = storage.findUser("alice");
+
+        assertThrows(RuntimeException.class, () -> engine.transfer(alice, "bob", 100.0));
+
+        assertEquals(0, alice.getWallet().size());
+        assertEquals(0, storage.findUser("bob").getWallet().size());
+        assertEquals(0, balance(storage.saved.get("bob")), 0.001);
+        assertEquals(0, journalSize());
+    }
+
+    @Test
+    void transfer_RollbackNotDurable_RecoverUndoesFailedTransfer() {
+        MemoryStorage storage = new MemoryStorage("alice", "bob");
+        storage.copies = true;
+        storage.failingFlush = true;
+        storage.savesLeft = 2;
+        TransferEngine engine = new TransferEngine(storage, tempDir);
+        User alice = storage.findUser("alice");
+
+        assertThrows(RuntimeException.class, () -> engine.transfer(alice, "bob", 100.0));
+        assertEquals(0, alice.getWallet().size());
+        assertEquals(100.0, balance(storage.saved.get("bob")), 0.001);
+        assertEquals(1, journalSize());
+
+        storage.failingFlush = false;
+        storage.savesLeft = Integer.MAX_VALUE;
+        new TransferEngine(storage, tempDir);
+
+        assertEquals(0, balance(storage.saved.get("bob")), 0.001);
+        assertEquals(0, balance(storage.saved.get("alice")), 0.001);
+        assertEquals(0, journalSize());
+    }
+
+    @Test
+    void transfer_RecipientHeldBySession_KeepsIncomeAfterSessionSave() {
+        MemoryStorage storage = new MemoryStorage("alice", "bob");
+        storage.copies = true;
+        Storage shared = new SynchronizedStorage(storage);
+        TransferEngine engine = new TransferEngine(shared, tempDir);
+        User bob = shared.findUser("bob");
+        assertNotSame(bob, storage.findUser("bob"));
+
+        engine.transfer(shared.findUser("alice"), "bob", 100.0);
+        bob.getWallet().addTransaction(new Transaction(Transaction.Type.EXPENSE, "food", 30.0));
+        engine.save(bob);
+
+        assertEquals(70.0, balance(storage.saved.get("bob")), 0.001);
+        assertEquals(-100.0, balance(storage.saved.get("alice")), 0.001);
+    }
+
+    @Test
+    void transfer_InvalidRecipient_Throws() {
+        MemoryStorage storage = new MemoryStorage("alice");
+        TransferEngine engine = new TransferEngine(storage);
+        User alice = storage.findUser("alice");
+
+        assertThrows(UserNotFoundException.class, () -> engine.transfer(alice, "nobody", 1.0));
+        assertThrows(InvalidInputException.class, () -> engine.transfer(alice, "alice", 1.0));
+        assertEquals(0, alice.getWallet().size());
+    }
+
+    @Test
+    void recover_CompletesJournaledTransferOnce() throws IOException {
+        MemoryStorage storage = new MemoryStorage("alice", "bob");
+        Transaction expense = new Transaction(Transaction.Type.EXPENSE, "Transfer", 75.0);
+        Transaction income =
+                new Transaction(Transaction.Type.INCOME, "Transfer", 75.0, expense.getDate());
+        storage.findUser("bob").getWallet().addTransaction(income);
+        Map<String, Object> intent = new HashMap<>();
+        intent.put("from", "alice");
+        intent.put("to", "bob");
+        intent.put("expense", expense);
+        intent.put("income", income);
+        Files.writeString(tempDir.resolve("pending.json"), new Gson().toJson(intent));
+
+        new TransferEngine(storage, tempDir);
+
+        assertEquals(List.of(expense), storage.findUser("alice").getWallet().getTransactions());
+        assertEquals(List.of(income), storage.findUser("bob").getWallet().getTransactions());
+        assertEquals(0, journalSize());
+    }
+
+    @Test
+    void transfer_ConcurrentOpposingTransfers_ConserveMoney() throws Exception {
+        String[] names = {"u0", "u1", "u2", "u3", "u4", "u5", "u6", "u7"};
+        MemoryStorage storage = new MemoryStorage(names);
+        TransferEngine engine = new TransferEngine(storage, null, 4);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int seed = t;
+            futures.add(
+                    pool.submit(
+                            () -> {
+                                for (int i = 0; i < 500; i++) {
+                                    String from = names[(seed + i) % names.length];
+                                    String to = names[(seed + 3 * i + 1) % names.length];
+                                    if (!from.equals(to)) {
+                                        engine.transfer(storage.findUser(from), to, 1.0);
+                                    }
+                                }
+                            }));
+        }
+        for (Future<?> f : futures) {
+            f.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        double sum = 0;
+        for (String name : names) {
+            sum += balance(storage.findUser(name).getWallet());
+        }
+        assertEquals(0.0, sum, 0.001);
+    }
+
+    @Test
+    void transfer_DisjointPairs_SaveInParallel() throws Exception {
+        String[] names = {"p0", "p1", "p2", "p3", "p4", "p5", "p6", "p7"};
+        MemoryStorage storage = new MemoryStorage(names);
+        // поиск получателя берёт блокировку записи: записи ждут друг друга только после всех
+        // поисков
+        CountDownLatch lookups = new CountDownLatch(4);
+        storage.lookups = lookups;
+        storage.concurrentSaves = new CountDownLatch(4);
+        Storage shared = new SynchronizedStorage(storage);
+        TransferEngine engine = new TransferEngine(shared, tempDir, 64);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            User from =
+                    new User(names[2 * i], "pass") {
+                        @Override
+                        public Wallet getWallet() {
+                            await(lookups);
+                            return super.getWallet();
+                        }
+                    };
+            String to = names[2 * i + 1];
+            futures.add(pool.submit(() -> engine.transfer(from, to, 1.0)));
+        }
+        for (Future<?> f : futures) {
+            f.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertFalse(storage.serialized, "saves of disjoint pairs did not overlap");
+        assertEquals(1.0, balance(storage.saved.get("p7")), 0.001);
+    }
+
+    private long journalSize() {
+        try (var files = Files.list(tempDir)) {
+            return files.count();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static double balance(Wallet wallet) {
+        if (wallet == null) return 0;
+        TransactionTotals totals = wallet.getTotals();
+        return totals.getTotal(Transaction.Type.INCOME) - totals.getTotal(Transaction.Type.EXPENSE);
+    }
+
+    /**
+     * Хранилище в памяти: один экземпляр User на имя, сохранённые копии отдельно. С {@code copies}
+     * каждый поиск отдаёт новую копию из сохранённого, как файловые хранилища.
+     */
+    private static class MemoryStorage implements Storage {
+        private final Map<String, User> users = new HashMap<>();
+        private final Map<String, Wallet> saved = new HashMap<>();
+        private String failingUser;
+        private boolean failingFlush;
+        private boolean copies;
+        private int savesLeft = Integer.MAX_VALUE;
+
+        /** Каждая запись ждёт, пока столько записей не окажутся в работе одновременно. */
+        private CountDownLatch concurrentSaves;
+
+        private CountDownLatch lookups;
+
+        private volatile boolean serialized;
+
+        MemoryStorage(String... names) {
+            for (String name : names) {
+                users.put(name, new User(name, "pass"));
+            }
+        }
+
+        @Override
+        public synchronized void saveUser(User user) {
+            users.put(user.getUsername(), user);
+        }
+
+        @Override
+        public synchronized User findUser(String username) {
+            if (lookups != null) lookups.countDown();
+            User user = users.get(username);
+            if (!copies || user == null) return user;
+            User copy = new User(username, user.getPassword());
+            Wallet wallet = saved.get(username);
+            if (wallet != null) {
+                copy.getWallet().setTransactions(new ArrayList<>(wallet.getTransactions()));
+            }
+            return copy;
+        }
+
+        @Override
+        public synchronized List<User> getAllUsers() {
+            return new ArrayList<>(users.values());
+        }
+
+        @Override
+        public void loadWallet(User user) {}
+
+        @Override
+        public void saveWallet(User user) {
+            CountDownLatch latch = concurrentSaves;
+            if (latch != null) {
+                latch.countDown();
+                if (!await(latch)) serialized = true;
+            }
+            synchronized (this) {
+                if (user.getUsername().equals(failingUser) || savesLeft-- <= 0) {
+                    throw new RuntimeException("Failed to save wallet");
+                }
+                Wallet copy = new Wallet();
+                copy.setTransactions(new ArrayList<>(user.getWallet().getTransactions()));
+                saved.put(user.getUsername(), copy);
+            }
+        }
+
+        @Override
+        public void flush() {
+            if (failingFlush) {
+                throw new RuntimeException("Failed to flush wallets");
+            }
+        }
+    }
+}
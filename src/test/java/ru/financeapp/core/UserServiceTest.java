@@ -2,10 +2,12 @@ package ru.financeapp.core;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import ru.financeapp.exceptions.InvalidCredentialsException;
@@ -14,6 +16,7 @@ import ru.financeapp.exceptions.UserNotFoundException;
 import ru.financeapp.infra.Storage;
 
 class UserServiceTest {
+    private final PasswordHasher hasher = new PasswordHasher(1000);
     private UserService service;
     @Mock private Storage storage;
     private User mockUser;
@@ -21,17 +24,27 @@ class UserServiceTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
-        service = new UserService(storage);
+        service = new UserService(storage, hasher);
         mockUser = new User("test", "pass");
     }
 
     @Test
     void register_Valid_SavesUser() {
-        when(storage.findUser("test")).thenReturn(null);
+        when(storage.exists("test")).thenReturn(false);
         assertDoesNotThrow(() -> service.register("test", "pass"));
         verify(storage).saveUser(any(User.class));
     }
 
+    @Test
+    void register_StoresSaltedHash_NotPassword() {
+        ArgumentCaptor<User> saved = ArgumentCaptor.forClass(User.class);
+        service.register("test", "pass");
+        verify(storage).saveUser(saved.capture());
+        String stored = saved.getValue().getPassword();
+        assertNotEquals("pass", stored);
+        assertTrue(stored.startsWith("pbkdf2$1000$"));
+    }
+
     @Test
     void register_EmptyUsername_Throws() {
         assertThrows(InvalidInputException.class, () -> service.register("", "pass"));
@@ -44,12 +57,13 @@ class UserServiceTest {
 
     @Test
     void register_Exists_Throws() {
-        when(storage.findUser("test")).thenReturn(mockUser);
+        when(storage.exists("test")).thenReturn(true);
         assertThrows(InvalidInputException.class, () -> service.register("test", "pass"));
     }
 
     @Test
     void login_Valid_ReturnsUser() {
+        when(storage.findCredentials("test")).thenReturn(hasher.hash("pass"));
         when(storage.findUser("test")).thenReturn(mockUser);
         User logged = service.login("test", "pass");
         assertEquals(mockUser, logged);
@@ -58,18 +72,54 @@ class UserServiceTest {
 
     @Test
     void login_NotFound_Throws() {
-        when(storage.findUser("test")).thenReturn(null);
+        when(storage.findCredentials("test")).thenReturn(null);
         assertThrows(UserNotFoundException.class, () -> service.login("test", "pass"));
     }
 
     @Test
     void login_WrongPass_Throws() {
-        when(storage.findUser("test")).thenReturn(mockUser);
+        when(storage.findCredentials("test")).thenReturn(hasher.hash("pass"));
         assertThrows(InvalidCredentialsException.class, () -> service.login("test", "wrong"));
+        verify(storage, never()).findUser(anyString());
+    }
+
+    @Test
+    void login_PlaintextRecord_VerifiesAndRehashes() {
+        when(storage.findCredentials("test")).thenReturn("pass");
+        when(storage.findUser("test")).thenReturn(mockUser);
+        mockUser.getWallet().setBudget("food", 10.0);
+
+        User logged = service.login("test", "pass");
+
+        ArgumentCaptor<String> saved = ArgumentCaptor.forClass(String.class);
+        verify(storage).saveCredentials(eq("test"), saved.capture());
+        verify(storage, never()).saveUser(any());
+        verify(storage, never()).saveWallet(any());
+        assertTrue(hasher.verify("pass", saved.getValue()));
+        assertFalse(hasher.needsRehash(saved.getValue()));
+        assertEquals(saved.getValue(), logged.getPassword());
+        assertSame(mockUser.getWallet(), logged.getWallet());
+    }
+
+    @Test
+    void login_RehashLazyUser_LeavesWalletUnloaded() {
+        User lazy = new User("test", "pass");
+        lazy.setWalletLoader(
+                () -> {
+                    throw new AssertionError("wallet loaded on login");
+                });
+        when(storage.findCredentials("test")).thenReturn("pass");
+        when(storage.findUser("test")).thenReturn(lazy);
+
+        service.login("test", "pass");
+
+        assertFalse(lazy.isWalletLoaded());
+        verify(storage).saveCredentials(eq("test"), anyString());
     }
 
     @Test
     void logout_ResetsCurrentUser() {
+        when(storage.findCredentials("test")).thenReturn(hasher.hash("pass"));
         when(storage.findUser("test")).thenReturn(mockUser);
         service.login("test", "pass");
         service.logout();
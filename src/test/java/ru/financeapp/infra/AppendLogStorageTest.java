@@ -0,0 +1,179 @@
+package ru.financeapp.infra;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.financeapp.core.Transaction;
+import ru.financeapp.core.User;
+
+class AppendLogStorageTest {
+    private AppendLogStorage storage;
+    @TempDir Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        storage = newStorage(3);
+    }
+
+    private AppendLogStorage newStorage(int threshold) {
+        Path usersPath = tempDir.resolve("users.json");
+        return new AppendLogStorage(tempDir.resolve("wallets").toString() + "/", threshold) {
+            @Override
+            protected Path getUsersFilePath() {
+                return usersPath;
+            }
+        };
+    }
+
+    @Test
+    void saveWallet_AfterLoad_AppendsOnlyNewTransactions() throws IOException {
+        storage.saveUser(new User("test", "pass"));
+        User user = storage.findUser("test");
+        user.getWallet().addTransaction(new Transaction(Transaction.Type.INCOME, "salary", 100));
+        storage.saveWallet(user);
+        user.getWallet().addTransaction(new Transaction(Transaction.Type.EXPENSE, "food", 40));
+        storage.saveWallet(user);
+
+        Path log = tempDir.resolve("wallets/test.wallet.log");
+        assertEquals(2, Files.readAllLines(log).size());
+        String snapshot = Files.readString(tempDir.resolve("wallets/test.wallet.json"));
+        assertFalse(snapshot.contains("salary"));
+    }
+
+    @Test
+    void loadWallet_ReplayedLog_LeavesWalletClean() {
+        storage.saveUser(new User("test", "pass"));
+        User user = storage.findUser("test");
+        user.getWallet().addTransaction(new Transaction(Transaction.Type.INCOME, "salary", 100));
+        user.getWallet().setBudget("food", 500.0);
+        storage.saveWallet(user);
+
+        User reloaded = new User("test", "pass");
+        newStorage(3).loadWallet(reloaded);
+
+        assertEquals(1, reloaded.getWallet().size());
+        assertEquals(500.0, reloaded.getWallet().getBudget("food"), 0.01);
+        assertFalse(reloaded.getWallet().isDirty());
+    }
+
+    @Test
+    void loadWallet_RebuildsFromSnapshotAndLog() {
+        storage.saveUser(new User("test", "pass"));
+        User user = storage.findUser("test");
+        user.getWallet().addTransaction(new Transaction(Transaction.Type.INCOME, "salary", 100));
+        user.getWallet().setBudget("food", 500.0);
+        storage.saveWallet(user);
+
+        User reloaded = newStorage(3).findUser("test");
+        assertEquals(1, reloaded.getWallet().getTransactions().size());
+        assertEquals(500.0, reloaded.getWallet().getBudget("food"), 0.01);
+    }
+
+    @Test
+    void saveWallet_ThresholdReached_CompactsIntoSnapshot() {
+        storage.saveUser(new User("test", "pass"));
+        User user = storage.findUser("test");
+        for (int i = 0; i < 3; i++) {
+            user.getWallet().addTransaction(new Transaction(Transaction.Type.EXPENSE, "food", 1));
+            storage.saveWallet(user);
+        }
+
+        assertFalse(Files.exists(tempDir.resolve("wallets/test.wallet.log")));
+        assertEquals(3, newStorage(3).findUser("test").getWallet().getTransactions().size());
+    }
+
+    @Test
+    void loadWallet_TornLastRecord_IgnoresIt() throws IOException {
+        storage.saveUser(new User("test", "pass"));
+        User user = storage.findUser("test");
+        user.getWallet().addTransaction(new Transaction(Transaction.Type.INCOME, "salary", 100));
+        storage.saveWallet(user);
+        Files.writeString(
+                tempDir.resolve("wallets/test.wallet.log"),
+                "{\"tx\":{\"type\":\"INC",
+                StandardOpenOption.APPEND);
+
+        assertEquals(1, newStorage(3).findUser("test").getWallet().getTransactions().size());
+    }
+
+    @Test
+    void saveWallet_AfterTornLastRecord_KeepsNewRecordsVisible() throws IOException {
+        storage.saveUser(new User("test", "pass"));
+        User user = storage.findUser("test");
+        user.getWallet().addTransaction(new Transaction(Transaction.Type.INCOME, "salary", 100));
+        storage.saveWallet(user);
+        Files.writeString(
+                tempDir.resolve("wallets/test.wallet.log"),
+                "{\"tx\":{\"type\":\"INC\n",
+                StandardOpenOption.APPEND);
+
+        AppendLogStorage restarted = newStorage(3);
+        User loaded = restarted.findUser("test");
+        loaded.getWallet().addTransaction(new Transaction(Transaction.Type.EXPENSE, "food", 40));
+        restarted.saveWallet(loaded);
+
+        User reloaded = newStorage(3).findUser("test");
+        assertEquals(2, reloaded.getWallet().getTransactions().size());
+        assertEquals(
+                40.0,
+                newStorage(3)
+                        .summarizeWallet("test")
+                        .getTotals()
+                        .getTotal(Transaction.Type.EXPENSE),
+                0.01);
+    }
+
+    @Test
+    void summarizeWallet_DuringCompaction_WaitsThroughSynchronizedStorage() throws Exception {
+        Path usersPath = tempDir.resolve("users.json");
+        CountDownLatch compacting = new CountDownLatch(1);
+        AtomicInteger compactorCalls = new AtomicInteger();
+        AppendLogStorage slow =
+                new AppendLogStorage(tempDir.resolve("wallets").toString() + "/", 2) {
+                    @Override
+                    protected Path getUsersFilePath() {
+                        return usersPath;
+                    }
+
+                    @Override
+                    protected Path getLogPath(String username) {
+                        // второе обращение потока сохранения — снимок уже записан, лог ещё нет
+                        if (Thread.currentThread().getName().equals("compactor")
+                                && compactorCalls.incrementAndGet() == 2) {
+                            compacting.countDown();
+                            try {
+                                Thread.sleep(300);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                        }
+                        return super.getLogPath(username);
+                    }
+                };
+        Storage synced = new SynchronizedStorage(slow);
+        synced.saveUser(new User("test", "pass"));
+        User user = synced.findUser("test");
+        user.getWallet().addTransaction(new Transaction(Transaction.Type.EXPENSE, "food", 10));
+        synced.saveWallet(user);
+        user.getWallet().addTransaction(new Transaction(Transaction.Type.EXPENSE, "food", 20));
+
+        Thread save = new Thread(() -> synced.saveWallet(user), "compactor");
+        save.start();
+        assertTrue(compacting.await(2, TimeUnit.SECONDS));
+        WalletSummary summary = synced.summarizeWallet("test");
+        save.join();
+
+        assertEquals(2, summary.getTransactionCount());
+        assertEquals(30.0, summary.getTotals().getTotal(Transaction.Type.EXPENSE), 0.01);
+    }
+}
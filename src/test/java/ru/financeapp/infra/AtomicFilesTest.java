@@ -0,0 +1,86 @@
+package ru.financeapp.infra;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AtomicFilesTest {
+    @TempDir Path tempDir;
+
+    @Test
+    void write_Valid_ReplacesFileWithoutLeftovers() throws IOException {
+        Path target = tempDir.resolve("wallet.json");
+        Files.writeString(target, "old");
+        AtomicFiles.writeText(target, w -> w.write("new"), FileSync.immediate());
+
+        assertEquals("new", Files.readString(target));
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void write_BodyFails_KeepsPreviousContent() throws IOException {
+        Path target = tempDir.resolve("wallet.json");
+        Files.writeString(target, "old");
+        assertThrows(
+                IOException.class,
+                () ->
+                        AtomicFiles.writeText(
+                                target,
+                                w -> {
+                                    w.write("half");
+                                    throw new IOException("disk full");
+                                },
+                                FileSync.immediate()));
+
+        assertEquals("old", Files.readString(target));
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void grouped_ManyWrites_ForceEachFileOncePerGroup() throws IOException {
+        try (FileSync sync = FileSync.grouped(60_000)) {
+            for (int i = 0; i < 5; i++) {
+                AtomicFiles.writeText(tempDir.resolve("w" + i), w -> w.write("x"), sync);
+                AtomicFiles.writeText(tempDir.resolve("w" + i), w -> w.write("y"), sync);
+            }
+            // до прохода ни один файл не сброшен и не переименован
+            assertEquals(0, sync.forcedFiles());
+            assertEquals(5, sync.pendingCount());
+            assertFalse(Files.exists(tempDir.resolve("w4")));
+
+            sync.flush();
+            assertEquals(5, sync.forcedFiles());
+            assertEquals(0, sync.pendingCount());
+        }
+        assertEquals("y", Files.readString(tempDir.resolve("w4")));
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(5, files.count());
+        }
+    }
+
+    @Test
+    void grouped_Settle_ReplacesOnlyThatFile() throws IOException {
+        Path target = tempDir.resolve("wallet.json");
+        Files.writeString(target, "old");
+        try (FileSync sync = FileSync.grouped(60_000)) {
+            AtomicFiles.writeText(target, w -> w.write("new"), sync);
+            AtomicFiles.writeText(tempDir.resolve("other"), w -> w.write("x"), sync);
+            assertEquals("old", Files.readString(target));
+
+            sync.settle(target);
+            assertEquals("new", Files.readString(target));
+            assertEquals(1, sync.forcedFiles());
+            assertFalse(Files.exists(tempDir.resolve("other")));
+        }
+    }
+}
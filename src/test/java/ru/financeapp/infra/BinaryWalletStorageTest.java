@@ -0,0 +1,147 @@
+package ru.financeapp.infra;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.financeapp.core.Transaction;
+import ru.financeapp.core.User;
+import ru.financeapp.core.Wallet;
+
+class BinaryWalletStorageTest {
+    private BinaryWalletStorage storage;
+    @TempDir Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        Path usersPath = tempDir.resolve("users.json");
+        storage =
+                new BinaryWalletStorage(tempDir.resolve("wallets").toString() + "/") {
+                    @Override
+                    protected Path getUsersFilePath() {
+                        return usersPath;
+                    }
+                };
+    }
+
+    @Test
+    void saveWallet_ThenLoad_RoundTripsWallet() {
+        User user = new User("test", "pass");
+        Transaction income = new Transaction(Transaction.Type.INCOME, "зарплата", 60000);
+        Transaction expense = new Transaction(Transaction.Type.EXPENSE, "food", 123.45);
+        user.getWallet().addTransaction(income);
+        user.getWallet().addTransaction(expense);
+        user.getWallet().setBudget("food", 4000.0);
+        user.getWallet().setBudget("rent", 20000.0);
+        storage.saveWallet(user);
+
+        User loaded = new User("test", "pass");
+        storage.loadWallet(loaded);
+        assertEquals(List.of(income, expense), loaded.getWallet().getTransactions());
+        assertEquals(20000.0, loaded.getWallet().getBudget("rent"), 0.01);
+    }
+
+    @Test
+    void saveWallet_DatesNotExactInMillis_RoundTripVerbatim() {
+        User user = new User("test", "pass");
+        List<Transaction> transactions =
+                List.of(
+                        new Transaction(
+                                Transaction.Type.INCOME,
+                                "salary",
+                                10,
+                                "2026-01-01T10:00:00.123456789"),
+                        new Transaction(Transaction.Type.INCOME, "salary", 20, "2026-01-01T10:00"),
+                        new Transaction(Transaction.Type.EXPENSE, "food", 5, "31.12.2025"),
+                        new Transaction(
+                                Transaction.Type.EXPENSE, "food", 7, "2026-01-02T08:30:00.5"));
+        transactions.forEach(user.getWallet()::addTransaction);
+        storage.saveWallet(user);
+
+        User loaded = new User("test", "pass");
+        storage.loadWallet(loaded);
+        assertEquals(transactions, loaded.getWallet().getTransactions());
+    }
+
+    @Test
+    void saveWallet_LegacyJson_MigratesToBinary() {
+        FileJsonStorage json = new FileJsonStorage(tempDir.resolve("wallets").toString() + "/");
+        User legacy = new User("test", "pass");
+        legacy.getWallet().addTransaction(new Transaction(Transaction.Type.INCOME, "salary", 10));
+        json.saveWallet(legacy);
+
+        User user = new User("test", "pass");
+        storage.loadWallet(user);
+        assertEquals(1, user.getWallet().getTransactions().size());
+        storage.saveWallet(user);
+
+        assertTrue(Files.exists(tempDir.resolve("wallets/test.wallet.bin")));
+        assertFalse(Files.exists(tempDir.resolve("wallets/test.wallet.json")));
+    }
+
+    @Test
+    void saveWallet_ManyTransactions_SmallerThanJson() throws IOException {
+        User user = new User("test", "pass");
+        Wallet wallet = user.getWallet();
+        for (int i = 0; i < 1000; i++) {
+            wallet.addTransaction(new Transaction(Transaction.Type.EXPENSE, "transport", i + 1));
+        }
+        new FileJsonStorage(tempDir.resolve("json").toString() + "/").saveWallet(user);
+        storage.saveWallet(user);
+
+        long jsonSize = Files.size(tempDir.resolve("json/test.wallet.json"));
+        long binarySize = Files.size(tempDir.resolve("wallets/test.wallet.bin"));
+        assertTrue(binarySize * 4 < jsonSize, binarySize + " vs " + jsonSize);
+    }
+
+    @Test
+    void loadWallet_BadHeader_Throws() throws IOException {
+        Files.createDirectories(tempDir.resolve("wallets"));
+        Files.write(tempDir.resolve("wallets/test.wallet.bin"), new byte[] {1, 2, 3, 4, 5});
+        assertThrows(RuntimeException.class, () -> storage.loadWallet(new User("test", "pass")));
+    }
+
+    @Test
+    void loadWallet_Version1DoubleAmounts_ConvertsToMinorUnits() throws IOException {
+        Files.createDirectories(tempDir.resolve("wallets"));
+        try (DataOutputStream out =
+                new DataOutputStream(
+                        Files.newOutputStream(tempDir.resolve("wallets/test.wallet.bin")))) {
+            out.writeInt(BinaryWalletCodec.MAGIC);
+            out.writeByte(1);
+            out.writeInt(1);
+            out.writeUTF("food");
+            out.writeInt(0);
+            out.writeInt(1);
+            out.writeByte(Transaction.Type.EXPENSE.ordinal());
+            out.writeInt(0);
+            out.writeLong(Timestamps.toEpochMillis("2024-01-02T10:00:00"));
+            out.writeDouble(12.34);
+        }
+        User user = new User("test", "pass");
+        storage.loadWallet(user);
+        assertEquals(1234, user.getWallet().getTransactions().get(0).getAmountMinor());
+    }
+
+    @Test
+    void setSharded_MovesBinaryWalletIntoShard() {
+        User user = new User("test", "pass");
+        Transaction t = new Transaction(Transaction.Type.EXPENSE, "food", 10.5);
+        user.getWallet().addTransaction(t);
+        storage.saveUser(user);
+
+        storage.setSharded(true);
+        User found = storage.findUser("test");
+
+        assertEquals(List.of(t), found.getWallet().getTransactions());
+        assertFalse(Files.exists(tempDir.resolve("wallets/test.wallet.bin")));
+        assertTrue(Files.exists(storage.getShardDir("test").resolve("test.wallet.bin")));
+    }
+}
@@ -0,0 +1,180 @@
+package ru.financeapp.infra;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.financeapp.core.Transaction;
+import ru.financeapp.core.User;
+import ru.financeapp.core.Wallet;
+
+class CachingStorageTest {
+    private Storage delegate;
+    private CachingStorage cache;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(Storage.class);
+        when(delegate.findUser(anyString()))
+                .thenAnswer(inv -> new User(inv.getArgument(0), "pass"));
+        cache = new CachingStorage(delegate, 2);
+    }
+
+    @Test
+    void findUser_SecondLookup_HitsCache() {
+        User first = cache.findUser("alice");
+        User second = cache.findUser("alice");
+
+        assertSame(first, second);
+        verify(delegate, times(1)).findUser("alice");
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    void saveWallet_DefersWriteUntilFlush() {
+        User alice = cache.findUser("alice");
+        alice.getWallet().addTransaction(new Transaction(Transaction.Type.INCOME, "salary", 10));
+        cache.saveWallet(alice);
+        cache.saveWallet(alice);
+        verify(delegate, never()).saveWallet(any());
+        assertEquals(1, cache.dirtyCount());
+
+        cache.flush();
+
+        verify(delegate, times(1)).saveWallet(alice);
+        verify(delegate).flush();
+        assertEquals(0, cache.dirtyCount());
+    }
+
+    @Test
+    void flushWallets_WritesOnlyGivenDirtyWallets() {
+        User alice = cache.findUser("alice");
+        User bob = cache.findUser("bob");
+        cache.saveWallet(alice);
+        cache.saveWallet(bob);
+
+        cache.flushWallets(List.of(alice));
+
+        verify(delegate).saveWallet(alice);
+        verify(delegate, never()).saveWallet(bob);
+        verify(delegate, never()).flush();
+        assertEquals(1, cache.dirtyCount());
+    }
+
+    @Test
+    void eviction_WritesDirtyLeastRecentlyUsed() {
+        User alice = cache.findUser("alice");
+        User bob = cache.findUser("bob");
+        cache.saveWallet(alice);
+        cache.saveWallet(bob);
+        cache.findUser("alice");
+
+        cache.findUser("carol");
+
+        verify(delegate).saveWallet(bob);
+        verify(delegate, never()).saveWallet(alice);
+        assertEquals(1, cache.getEvictions());
+        assertSame(alice, cache.findUser("alice"));
+    }
+
+    @Test
+    void getAllUsers_PrefersCachedInstances() {
+        User alice = cache.findUser("alice");
+        when(delegate.getAllUsers())
+                .thenReturn(List.of(new User("alice", "pass"), new User("bob", "pass")));
+
+        List<User> all = cache.getAllUsers();
+
+        assertSame(alice, all.get(0));
+        assertEquals("bob", all.get(1).getUsername());
+    }
+
+    @Test
+    void backgroundFlush_WritesDirtyWallets() {
+        CachingStorage async = new CachingStorage(delegate, 2, 20);
+        User alice = async.findUser("alice");
+        async.saveWallet(alice);
+
+        verify(delegate, timeout(2000)).saveWallet(alice);
+        async.close();
+    }
+
+    @Test
+    void saveUser_WhileCachedUserLoadsWallet_DoesNotDeadlock() {
+        when(delegate.findUser("alice"))
+                .thenAnswer(
+                        inv -> {
+                            User lazy = new User("alice", "pass");
+                            lazy.setWalletLoader(Wallet::new);
+                            return lazy;
+                        });
+        User cached = cache.findUser("alice");
+        CountDownLatch saving = new CountDownLatch(1);
+        doAnswer(
+                        inv -> {
+                            saving.countDown();
+                            Thread.sleep(200);
+                            return null;
+                        })
+                .when(delegate)
+                .saveUser(any());
+        User replacement = new User("alice", "pass");
+
+        assertTimeoutPreemptively(
+                Duration.ofSeconds(5),
+                () -> {
+                    CompletableFuture<Void> save =
+                            CompletableFuture.runAsync(() -> cache.saveUser(replacement));
+                    assertTrue(saving.await(2, TimeUnit.SECONDS));
+                    cached.getWallet();
+                    save.get();
+                });
+        assertSame(replacement.getWallet(), cached.getWallet());
+    }
+
+    @Test
+    void flush_WhileSessionAddsTransactions_WritesEveryTransaction(@TempDir Path dir)
+            throws InterruptedException {
+        Path usersPath = dir.resolve("users.json");
+        FileJsonStorage files =
+                new FileJsonStorage(dir.resolve("wallets").toString() + "/") {
+                    @Override
+                    protected Path getUsersFilePath() {
+                        return usersPath;
+                    }
+                };
+        files.saveUser(new User("alice", "pass"));
+        CachingStorage cached = new CachingStorage(files, 2);
+        User alice = cached.findUser("alice");
+        int count = 5000;
+        Thread session =
+                new Thread(
+                        () -> {
+                            for (int i = 0; i < count; i++) {
+                                alice.getWallet()
+                                        .addTransaction(
+                                                new Transaction(
+                                                        Transaction.Type.EXPENSE, "food", 1));
+                                cached.saveWallet(alice);
+                            }
+                        });
+        session.start();
+        while (session.isAlive()) {
+            cached.flush();
+        }
+        session.join();
+        cached.flush();
+
+        assertEquals(count, files.findUser("alice").getWallet().size());
+    }
+}
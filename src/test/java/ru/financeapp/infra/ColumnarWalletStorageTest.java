@@ -0,0 +1,184 @@
+package ru.financeapp.infra;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.financeapp.core.Transaction;
+import ru.financeapp.core.User;
+import ru.financeapp.core.Wallet;
+
+class ColumnarWalletStorageTest {
+    private ColumnarWalletStorage storage;
+    @TempDir Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        storage = new ColumnarWalletStorage(tempDir.resolve("wallets").toString() + "/");
+    }
+
+    @Test
+    void loadWallet_AfterSave_ComputesTotalsFromColumns() {
+        User user = new User("test", "pass");
+        Transaction income = new Transaction(Transaction.Type.INCOME, "salary", 5000);
+        Transaction expense = new Transaction(Transaction.Type.EXPENSE, "food", 1200.5);
+        user.getWallet().addTransaction(income);
+        user.getWallet().addTransaction(expense);
+        user.getWallet().setBudget("food", 4000.0);
+        storage.saveWallet(user);
+
+        User loaded = new User("test", "pass");
+        storage.loadWallet(loaded);
+        Wallet wallet = loaded.getWallet();
+        assertNotNull(wallet.getColumns());
+        assertEquals(5000.0, wallet.getTotals().getTotal(Transaction.Type.INCOME), 0.01);
+        assertEquals(1200.5, wallet.getTotals().getCategoryTotal(Transaction.Type.EXPENSE, "food"));
+        assertEquals(4000.0, wallet.getBudget("food"), 0.01);
+        assertEquals(List.of(income, expense), wallet.getTransactions());
+    }
+
+    @Test
+    void saveWallet_GroupedSync_ReadsLatestBeforeFlush() throws IOException {
+        try (FileSync sync = FileSync.grouped(60_000)) {
+            storage.setFileSync(sync);
+            User user = new User("test", "pass");
+            user.getWallet().addTransaction(new Transaction(Transaction.Type.INCOME, "salary", 10));
+            storage.saveWallet(user);
+            user.getWallet().addTransaction(new Transaction(Transaction.Type.EXPENSE, "food", 3));
+            storage.saveWallet(user);
+            User rewritten = new User("test", "pass");
+            rewritten
+                    .getWallet()
+                    .setTransactions(new ArrayList<>(user.getWallet().getTransactions()));
+            rewritten
+                    .getWallet()
+                    .addTransaction(new Transaction(Transaction.Type.INCOME, "gift", 1));
+            storage.saveWallet(rewritten);
+
+            User loaded = new User("test", "pass");
+            storage.loadWallet(loaded);
+            assertEquals(3, loaded.getWallet().size());
+            assertEquals(
+                    11.0,
+                    storage.summarizeWallet("test").getTotals().getTotal(Transaction.Type.INCOME),
+                    0.01);
+        }
+    }
+
+    @Test
+    void saveWallet_LoadedWallet_AppendsOnlyNewRows() throws IOException {
+        User user = new User("test", "pass");
+        user.getWallet().addTransaction(new Transaction(Transaction.Type.INCOME, "salary", 10));
+        storage.saveWallet(user);
+
+        User loaded = new User("test", "pass");
+        storage.loadWallet(loaded);
+        loaded.getWallet().addTransaction(new Transaction(Transaction.Type.EXPENSE, "food", 3));
+        storage.saveWallet(loaded);
+
+        assertEquals(2, loaded.getWallet().getColumns().size());
+        assertTrue(loaded.getWallet().getUnmappedTransactions().isEmpty());
+        assertEquals(16, Files.size(tempDir.resolve("wallets/test.columns/amount.col")));
+        User reloaded = new User("test", "pass");
+        storage.loadWallet(reloaded);
+        assertEquals(10.0, reloaded.getWallet().getTotals().getTotal(Transaction.Type.INCOME));
+        assertEquals(3.0, reloaded.getWallet().getTotals().getTotal(Transaction.Type.EXPENSE));
+    }
+
+    @Test
+    void saveWallet_LegacyJson_MigratesToColumns() {
+        User legacy = new User("test", "pass");
+        legacy.getWallet().addTransaction(new Transaction(Transaction.Type.INCOME, "salary", 10));
+        new FileJsonStorage(tempDir.resolve("wallets").toString() + "/").saveWallet(legacy);
+
+        User user = new User("test", "pass");
+        storage.loadWallet(user);
+        storage.saveWallet(user);
+
+        assertFalse(Files.exists(tempDir.resolve("wallets/test.wallet.json")));
+        assertEquals(
+                10.0,
+                storage.summarizeWallet("test").getTotals().getTotal(Transaction.Type.INCOME),
+                0.01);
+    }
+
+    @Test
+    void saveWallet_VersionOneColumns_ReadsWithoutRewriteThenMigrates() throws IOException {
+        Path dir = tempDir.resolve("wallets/test.columns");
+        Files.createDirectories(dir);
+        ByteArrayOutputStream meta = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(meta);
+        out.writeInt(0x50465743);
+        out.writeByte(1);
+        out.writeInt(1);
+        out.writeInt(1);
+        out.writeUTF("salary");
+        out.writeInt(0);
+        Files.write(dir.resolve(MappedTransactionColumns.META_FILE), meta.toByteArray());
+        Files.write(dir.resolve("type.col"), new byte[] {0});
+        Files.write(dir.resolve("category.col"), ByteBuffer.allocate(4).putInt(0).array());
+        Files.write(dir.resolve("amount.col"), ByteBuffer.allocate(8).putDouble(10.25).array());
+        Files.write(
+                dir.resolve("time.col"),
+                ByteBuffer.allocate(8).putLong(Timestamps.NO_DATE).array());
+        byte[] legacyAmounts = Files.readAllBytes(dir.resolve("amount.col"));
+
+        assertEquals(
+                10.25,
+                storage.summarizeWallet("test").getTotals().getTotal(Transaction.Type.INCOME));
+        assertArrayEquals(legacyAmounts, Files.readAllBytes(dir.resolve("amount.col")));
+
+        User user = new User("test", "pass");
+        storage.loadWallet(user);
+        user.getWallet().addTransaction(new Transaction(Transaction.Type.EXPENSE, "food", 3));
+        storage.saveWallet(user);
+
+        assertFalse(Files.exists(dir.resolve("amount.col")));
+        assertEquals(16, Files.size(dir.resolve("amount.1.col")));
+        User reloaded = new User("test", "pass");
+        storage.loadWallet(reloaded);
+        assertEquals(10.25, reloaded.getWallet().getTotals().getTotal(Transaction.Type.INCOME));
+        assertEquals(3.0, reloaded.getWallet().getTotals().getTotal(Transaction.Type.EXPENSE));
+    }
+
+    @Test
+    void saveWallet_DatesNotExactInMillis_RoundTripVerbatim() {
+        Transaction nanos =
+                new Transaction(
+                        Transaction.Type.INCOME, "salary", 100, "2024-01-01T10:00:00.123456789");
+        Transaction dayOnly = new Transaction(Transaction.Type.EXPENSE, "food", 40, "2024-01-02");
+        User user = new User("test", "pass");
+        user.getWallet().addTransaction(nanos);
+        storage.saveWallet(user);
+        User loaded = new User("test", "pass");
+        storage.loadWallet(loaded);
+        loaded.getWallet().addTransaction(dayOnly);
+        storage.saveWallet(loaded);
+
+        User reloaded = new User("test", "pass");
+        storage.loadWallet(reloaded);
+        Wallet wallet = reloaded.getWallet();
+        assertEquals(
+                40.0,
+                wallet.getDailyTotals()
+                        .between(LocalDate.of(2024, 1, 2), LocalDate.of(2024, 1, 2))
+                        .getTotal(Transaction.Type.EXPENSE));
+        assertEquals(
+                100.0,
+                wallet.getDailyTotals()
+                        .between(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 1))
+                        .getTotal(Transaction.Type.INCOME));
+        assertEquals(List.of(nanos, dayOnly), wallet.getTransactions());
+    }
+}
@@ -6,6 +6,7 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
@@ -15,6 +16,7 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import ru.financeapp.core.Transaction;
 import ru.financeapp.core.User;
 import ru.financeapp.core.Wallet;
 
@@ -53,6 +55,20 @@ class FileJsonStorageTest {
         assertTrue(Files.exists(tempDir.resolve("wallets/test.wallet.json")));
     }
 
+    @Test
+    void saveCredentials_RewritesOnlyUsersFile() throws IOException {
+        User user = new User("test", "pass");
+        user.getWallet().setBudget("food", 4000.0);
+        storage.saveUser(user);
+        Path wallet = tempDir.resolve("wallets/test.wallet.json");
+        Files.delete(wallet);
+
+        storage.saveCredentials("test", "rehashed");
+
+        assertEquals("rehashed", storage.findCredentials("test"));
+        assertFalse(Files.exists(wallet));
+    }
+
     @Test
     void findUser_Valid_LoadsWithWallet() {
         User saved = new User("test", "pass");
@@ -64,6 +80,26 @@ class FileJsonStorageTest {
         assertEquals(4000.0, found.getWallet().getBudget("food"), 0.01);
     }
 
+    @Test
+    void findUser_ReadsWalletOnFirstAccess() throws IOException {
+        User saved = new User("test", "pass");
+        saved.getWallet().setBudget("food", 4000.0);
+        storage.saveUser(saved);
+        User found = storage.findUser("test");
+        assertFalse(found.isWalletLoaded());
+
+        Files.delete(tempDir.resolve("wallets/test.wallet.json"));
+        assertTrue(found.getWallet().getBudgets().isEmpty());
+        assertTrue(found.isWalletLoaded());
+    }
+
+    @Test
+    void exists_ChecksUsersWithoutWallet() {
+        storage.saveUser(new User("test", "pass"));
+        assertTrue(storage.exists("test"));
+        assertFalse(storage.exists("nonexistent"));
+    }
+
     @Test
     void findUser_NotExists_ReturnsNull() {
         assertNull(storage.findUser("nonexistent"));
@@ -130,9 +166,104 @@ class FileJsonStorageTest {
         assertTrue(content.contains("\"food\":4000.0"));
     }
 
+    @Test
+    void findUser_UsersFileChangedExternally_ReloadsDirectory() throws IOException {
+        storage.saveUser(new User("u1", "p1"));
+        assertNull(storage.findUser("u2"));
+        Path usersFile = tempDir.resolve("users.json");
+        FileTime before = Files.getLastModifiedTime(usersFile);
+        Files.writeString(usersFile, "{\"u1\":\"p1\",\"u2\":\"p2\"}");
+        Files.setLastModifiedTime(usersFile, FileTime.fromMillis(before.toMillis() + 1000));
+
+        User found = storage.findUser("u2");
+        assertNotNull(found);
+        assertEquals("p2", found.getPassword());
+    }
+
+    @Test
+    void loadWallet_AfterSave_RoundTripsTransactions() {
+        User user = new User("test", "pass");
+        Transaction t = new Transaction(Transaction.Type.EXPENSE, "еда", 250.5);
+        user.getWallet().addTransaction(t);
+        storage.saveWallet(user);
+
+        User loaded = new User("test", "pass");
+        storage.loadWallet(loaded);
+        assertEquals(List.of(t), loaded.getWallet().getTransactions());
+    }
+
+    @Test
+    void findUser_WalletCleanUntilModified() {
+        storage.saveUser(new User("test", "pass"));
+        User user = storage.findUser("test");
+        assertFalse(user.getWallet().isDirty());
+
+        user.getWallet().setBudget("еда", 100);
+        assertTrue(user.getWallet().isDirty());
+
+        storage.saveWallet(user);
+        assertFalse(user.getWallet().isDirty());
+    }
+
+    @Test
+    void summarizeWallet_StreamsTotalsAndBudgets() {
+        User user = new User("test", "pass");
+        user.getWallet().addTransaction(new Transaction(Transaction.Type.INCOME, "salary", 1000));
+        user.getWallet().addTransaction(new Transaction(Transaction.Type.EXPENSE, "food", 300));
+        user.getWallet().addTransaction(new Transaction(Transaction.Type.EXPENSE, "food", 200));
+        user.getWallet().setBudget("food", 4000.0);
+        storage.saveWallet(user);
+
+        WalletSummary summary = storage.summarizeWallet("test");
+        assertEquals(3, summary.getTransactionCount());
+        assertEquals(1000.0, summary.getTotals().getTotal(Transaction.Type.INCOME), 0.01);
+        assertEquals(
+                500.0,
+                summary.getTotals().getCategoryTotal(Transaction.Type.EXPENSE, "food"),
+                0.01);
+        assertEquals(4000.0, summary.getBudgets().get("food"), 0.01);
+    }
+
     @Test
     void loadUsers_EmptyDir_ReturnsEmptyMap() {
         Map<String, String> users = storage.loadUsers();
         assertTrue(users.isEmpty());
     }
+
+    @Test
+    void sharded_SaveUser_WritesOnlyItsShard() throws IOException {
+        storage.setSharded(true);
+        storage.saveUser(new User("alice", "p1"));
+        storage.saveUser(new User("bob", "p2"));
+
+        Path aliceDir = storage.getShardDir("alice");
+        assertEquals(tempDir.resolve("wallets"), aliceDir.getParent().getParent());
+        assertTrue(Files.exists(aliceDir.resolve("alice.wallet.json")));
+        Map<?, ?> shard =
+                new Gson().fromJson(Files.readString(aliceDir.resolve("users.json")), Map.class);
+        assertEquals("p1", shard.get("alice"));
+        assertFalse(Files.exists(tempDir.resolve("users.json")));
+
+        assertEquals("p2", storage.findUser("bob").getPassword());
+        assertNull(storage.findUser("carol"));
+        assertEquals(2, storage.getAllUsers().size());
+    }
+
+    @Test
+    void sharded_FlatDataPresent_MigratesUsersAndWallets() throws IOException {
+        User user = new User("test", "pass");
+        user.getWallet().setBudget("food", 4000.0);
+        storage.saveUser(user);
+        storage.saveUser(new User("other", "p2"));
+
+        storage.setSharded(true);
+        User found = storage.findUser("test");
+
+        assertEquals(4000.0, found.getWallet().getBudget("food"), 0.01);
+        assertFalse(Files.exists(tempDir.resolve("wallets/test.wallet.json")));
+        assertTrue(Files.exists(storage.getShardDir("test").resolve("test.wallet.json")));
+        assertFalse(Files.exists(tempDir.resolve("users.json")));
+        assertTrue(Files.exists(tempDir.resolve("users.json.migrated")));
+        assertEquals(2, storage.getAllUsers().size());
+    }
 }
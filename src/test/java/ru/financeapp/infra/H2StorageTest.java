@@ -0,0 +1,140 @@
+package ru.financeapp.infra;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.financeapp.core.Transaction;
+import ru.financeapp.core.User;
+import ru.financeapp.core.Wallet;
+
+class H2StorageTest {
+    private H2Storage storage;
+    @TempDir Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        storage = new H2Storage(tempDir.resolve("finance"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        storage.close();
+    }
+
+    private H2Storage reopen() {
+        storage.close();
+        storage = new H2Storage(tempDir.resolve("finance"));
+        return storage;
+    }
+
+    @Test
+    void saveUser_ThenFindAfterReopen_RoundTripsWallet() {
+        User user = new User("test", "pass");
+        Transaction income = new Transaction(Transaction.Type.INCOME, "зарплата", 60000);
+        Transaction expense = new Transaction(Transaction.Type.EXPENSE, "food", 123.45);
+        user.getWallet().addTransaction(income);
+        user.getWallet().addTransaction(expense);
+        user.getWallet().setBudget("food", 4000.0);
+        storage.saveUser(user);
+
+        User loaded = reopen().findUser("test");
+        assertEquals("pass", loaded.getPassword());
+        assertEquals(List.of(income, expense), loaded.getWallet().getTransactions());
+        assertEquals(4000.0, loaded.getWallet().getBudget("food"), 0.01);
+        assertFalse(loaded.getWallet().isDirty());
+        assertNull(storage.findUser("missing"));
+    }
+
+    @Test
+    void saveWallet_Appends_ThenRewritesAfterReplace() {
+        User user = new User("test", "pass");
+        storage.saveUser(user);
+        User loaded = storage.findUser("test");
+        Transaction first = new Transaction(Transaction.Type.INCOME, "salary", 100);
+        Transaction second = new Transaction(Transaction.Type.EXPENSE, "food", 30);
+        loaded.getWallet().addTransaction(first);
+        storage.saveWallet(loaded);
+        loaded.getWallet().addTransaction(second);
+        storage.saveWallet(loaded);
+        assertEquals(
+                List.of(first, second), storage.findUser("test").getWallet().getTransactions());
+
+        loaded.getWallet().removeTransaction(second);
+        storage.saveWallet(loaded);
+        assertEquals(List.of(first), storage.findUser("test").getWallet().getTransactions());
+
+        Transaction replacement = new Transaction(Transaction.Type.EXPENSE, "rent", 70);
+        loaded.getWallet().setTransactions(new ArrayList<>(List.of(replacement)));
+        storage.saveWallet(loaded);
+        assertEquals(List.of(replacement), reopen().findUser("test").getWallet().getTransactions());
+    }
+
+    @Test
+    void saveWallet_RemovedBudget_IsDeleted() {
+        User user = new User("test", "pass");
+        user.getWallet().setBudget("food", 10.0);
+        user.getWallet().setBudget("rent", 20.0);
+        storage.saveUser(user);
+
+        user.getWallet().getBudgets().remove("rent");
+        user.getWallet().setBudget("food", 15.0);
+        storage.saveWallet(user);
+
+        User loaded = storage.findUser("test");
+        assertEquals(Map.of("food", 15.0), loaded.getWallet().getBudgets());
+    }
+
+    @Test
+    void saveWallet_AppendAndBudgetInOneSave_PersistsBoth() {
+        storage.saveUser(new User("test", "pass"));
+        User loaded = storage.findUser("test");
+        loaded.getWallet().addTransaction(new Transaction(Transaction.Type.INCOME, "salary", 100));
+        storage.saveWallet(loaded);
+
+        loaded.getWallet().addTransaction(new Transaction(Transaction.Type.EXPENSE, "food", 30));
+        storage.saveWallet(loaded);
+        loaded.getWallet().addTransaction(new Transaction(Transaction.Type.EXPENSE, "food", 5));
+        loaded.getWallet().setBudget("food", 40.0);
+        storage.saveWallet(loaded);
+
+        Wallet reloaded = reopen().findUser("test").getWallet();
+        assertEquals(3, reloaded.getTransactions().size());
+        assertEquals(Map.of("food", 40.0), reloaded.getBudgets());
+    }
+
+    @Test
+    void summarizeWallet_GroupsInDatabase() {
+        User user = new User("test", "pass");
+        user.getWallet().addTransaction(new Transaction(Transaction.Type.INCOME, "salary", 1000));
+        user.getWallet().addTransaction(new Transaction(Transaction.Type.EXPENSE, "food", 10.1));
+        user.getWallet().addTransaction(new Transaction(Transaction.Type.EXPENSE, "food", 0.2));
+        user.getWallet().addTransaction(new Transaction(Transaction.Type.EXPENSE, "rent", 300));
+        user.getWallet().setBudget("food", 50.0);
+        storage.saveUser(user);
+
+        WalletSummary summary = storage.summarizeWallet("test");
+
+        assertEquals(4, summary.getTransactionCount());
+        assertEquals(
+                1030, summary.getTotals().getCategoryTotalMinor(Transaction.Type.EXPENSE, "food"));
+        assertEquals(31030, summary.getTotals().getTotalMinor(Transaction.Type.EXPENSE));
+        assertEquals(50.0, summary.getBudgets().get("food"));
+        assertEquals(0, storage.summarizeWallet("missing").getTransactionCount());
+    }
+
+    @Test
+    void getAllUsers_LoadsEveryUser() {
+        storage.saveUser(new User("a", "1"));
+        storage.saveUser(new User("b", "2"));
+        assertEquals(
+                List.of("a", "b"), storage.getAllUsers().stream().map(User::getUsername).toList());
+    }
+}
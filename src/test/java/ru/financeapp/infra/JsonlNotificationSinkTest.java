@@ -0,0 +1,39 @@
+package ru.financeapp.infra;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.financeapp.core.Notification;
+
+class JsonlNotificationSinkTest {
+    @TempDir Path tempDir;
+
+    @Test
+    void accept_WritesOneJsonObjectPerLine_AppendsAcrossOpens() throws Exception {
+        Path file = tempDir.resolve("logs").resolve("alerts.jsonl");
+        try (JsonlNotificationSink sink = new JsonlNotificationSink(file)) {
+            sink.accept(new Notification("alice", "budget", "Alert: Budget exceeded!", 0));
+            sink.flush();
+        }
+        try (JsonlNotificationSink sink = new JsonlNotificationSink(file)) {
+            sink.accept(new Notification("bob", "balance", "Warning: Balance is zero!", 1000));
+        }
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(2, lines.size());
+        JsonObject first = JsonParser.parseString(lines.get(0)).getAsJsonObject();
+        assertEquals("alice", first.get("user").getAsString());
+        assertEquals("budget", first.get("rule").getAsString());
+        assertEquals("1970-01-01T00:00:00Z", first.get("time").getAsString());
+        JsonObject second = JsonParser.parseString(lines.get(1)).getAsJsonObject();
+        assertEquals("Warning: Balance is zero!", second.get("message").getAsString());
+    }
+}
@@ -0,0 +1,108 @@
+package ru.financeapp.infra;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.financeapp.core.Transaction;
+import ru.financeapp.core.Wallet;
+
+class WalletArchiveTest {
+    @TempDir Path tempDir;
+
+    private static Wallet wallet(Transaction... transactions) {
+        Wallet wallet = new Wallet();
+        for (Transaction t : transactions) {
+            wallet.addTransaction(t);
+        }
+        return wallet;
+    }
+
+    private static Transaction income(double amount, String date) {
+        return new Transaction(Transaction.Type.INCOME, "salary", amount, date);
+    }
+
+    private static Transaction expense(double amount, String date) {
+        return new Transaction(Transaction.Type.EXPENSE, "food", amount, date);
+    }
+
+    @Test
+    void export_ThenReplace_RoundTrips() throws IOException {
+        Wallet source =
+                wallet(income(1000.5, "2026-01-01T10:00:00"), expense(0.1, "2026-01-02T10:00:00"));
+        source.setBudget("food", 300.0);
+        Path file = tempDir.resolve("archive.json");
+
+        assertEquals(2, WalletArchive.export(source, file));
+        Wallet target = wallet(expense(5, "2025-12-31T00:00:00"));
+        WalletArchive.ImportResult result =
+                WalletArchive.importInto(target, file, WalletArchive.Mode.REPLACE);
+
+        assertEquals(2, result.getImported());
+        assertEquals(source.getTransactions(), target.getTransactions());
+        assertEquals(300.0, target.getBudget("food"));
+        assertEquals(100050, target.getTotals().getTotalMinor(Transaction.Type.INCOME));
+    }
+
+    @Test
+    void importInto_Append_KeepsExistingAndOverridesBudgets() throws IOException {
+        Path file = tempDir.resolve("archive.json");
+        Files.writeString(
+                file,
+                "{\"budgets\": {\"food\": 50.0}, \"transactions\": ["
+                        + "{\"type\": \"EXPENSE\", \"category\": \"food\", \"amount\": 12.5,"
+                        + " \"date\": \"2026-02-01T00:00:00\"}]}");
+        Wallet target = wallet(expense(12.5, "2026-02-01T00:00:00"));
+        target.setBudget("food", 10.0);
+        target.setBudget("rent", 100.0);
+
+        WalletArchive.importInto(target, file, WalletArchive.Mode.APPEND);
+
+        assertEquals(2, target.size());
+        assertEquals(2500, target.getTotals().getTotalMinor(Transaction.Type.EXPENSE));
+        assertEquals(50.0, target.getBudget("food"));
+        assertEquals(100.0, target.getBudget("rent"));
+    }
+
+    @Test
+    void importInto_Merge_SkipsDuplicates() throws IOException {
+        Wallet source =
+                wallet(
+                        income(100, "2026-01-01T00:00:00"),
+                        expense(20, "2026-01-02T00:00:00"),
+                        expense(20, "2026-01-03T00:00:00"));
+        Path file = tempDir.resolve("archive.json");
+        WalletArchive.export(source, file);
+        Wallet target = wallet(income(100, "2026-01-01T00:00:00"));
+
+        WalletArchive.ImportResult result =
+                WalletArchive.importInto(target, file, WalletArchive.Mode.MERGE);
+
+        assertEquals(2, result.getImported());
+        assertEquals(1, result.getSkipped());
+        assertEquals(3, result.getRows());
+        assertEquals(source.getTransactions(), target.getTransactions());
+    }
+
+    @Test
+    void importInto_Malformed_LeavesWalletUnchanged() throws IOException {
+        Path file = tempDir.resolve("broken.json");
+        Files.writeString(
+                file,
+                "{\"transactions\": [{\"type\": \"INCOME\", \"category\": \"a\", \"amount\": 1},"
+                        + " {\"type\": \"INCOME\", \"category\": ");
+        Wallet target = wallet(expense(5, "2026-01-01T00:00:00"));
+
+        assertThrows(
+                IOException.class,
+                () -> WalletArchive.importInto(target, file, WalletArchive.Mode.APPEND));
+
+        assertEquals(List.of(expense(5, "2026-01-01T00:00:00")), target.getTransactions());
+        assertFalse(target.getBudgets().containsKey("a"));
+    }
+}
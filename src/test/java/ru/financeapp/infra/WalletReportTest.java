@@ -0,0 +1,75 @@
+package ru.financeapp.infra;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.financeapp.core.Transaction;
+import ru.financeapp.core.User;
+
+class WalletReportTest {
+    @TempDir Path tempDir;
+    private FileJsonStorage storage;
+
+    @BeforeEach
+    void setUp() {
+        Path usersPath = tempDir.resolve("users.json");
+        storage =
+                new FileJsonStorage(tempDir.resolve("wallets").toString() + "/") {
+                    @Override
+                    protected Path getUsersFilePath() {
+                        return usersPath;
+                    }
+                };
+    }
+
+    private void save(String username, double salary, double food) {
+        User user = new User(username, "pass");
+        user.getWallet().addTransaction(new Transaction(Transaction.Type.INCOME, "salary", salary));
+        user.getWallet().addTransaction(new Transaction(Transaction.Type.EXPENSE, "food", food));
+        storage.saveUser(user);
+    }
+
+    @Test
+    void build_SumsCategoriesAndKeepsTopSpenders() {
+        for (int i = 1; i <= 20; i++) {
+            save("u" + i, 1000, i * 10);
+        }
+
+        WalletReport report = WalletReport.build(storage, 3);
+
+        assertEquals(20, report.getUsers());
+        assertEquals(40, report.getTransactionCount());
+        assertEquals(
+                20000.0, report.getTotals().getCategoryTotal(Transaction.Type.INCOME, "salary"));
+        assertEquals(2100.0, report.getTotals().getCategoryTotal(Transaction.Type.EXPENSE, "food"));
+        List<WalletReport.Spender> top = report.getTopSpenders();
+        assertEquals(List.of("u20", "u19", "u18"), top.stream().map(s -> s.getUsername()).toList());
+        assertEquals(200.0, top.get(0).getExpenses());
+    }
+
+    @Test
+    void build_UnreadableWallet_IsCountedAndSkipped() throws IOException {
+        save("ok", 100, 50);
+        save("broken", 100, 50);
+        Files.writeString(tempDir.resolve("wallets/broken.wallet.json"), "{not json");
+
+        WalletReport report = WalletReport.build(storage, 5);
+
+        assertEquals(1, report.getUsers());
+        assertEquals(1, report.getFailed());
+        assertEquals(50.0, report.getTotals().getTotal(Transaction.Type.EXPENSE));
+    }
+
+    @Test
+    void build_ZeroTop_ReturnsNoSpenders() {
+        save("u1", 100, 50);
+        assertTrue(WalletReport.build(storage, 0).getTopSpenders().isEmpty());
+    }
+}